@@ -26,6 +26,7 @@ import cpw.mods.fml.common.ModContainer;
 import cpw.mods.fml.common.SidedProxy;
 import cpw.mods.fml.common.event.FMLInitializationEvent;
 import cpw.mods.fml.common.event.FMLInterModComms;
+import cpw.mods.fml.common.event.FMLModIdMappingEvent;
 import cpw.mods.fml.common.event.FMLPostInitializationEvent;
 import cpw.mods.fml.common.event.FMLPreInitializationEvent;
 import cpw.mods.fml.common.event.FMLServerStartedEvent;
@@ -39,12 +40,14 @@ import net.minecraft.item.ItemBlock;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.common.ForgeChunkManager;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.oredict.OreDictionary;
 import org.apache.logging.log4j.Logger;
 import portablejim.veinminer.configuration.ConfigurationSettings;
 import portablejim.veinminer.configuration.ConfigurationValues;
 import portablejim.veinminer.configuration.ToolType;
+import portablejim.veinminer.core.ChunkKeeper;
 import portablejim.veinminer.core.CoreEvents;
 import portablejim.veinminer.lib.MinerLogger;
 import portablejim.veinminer.lib.ModInfo;
@@ -158,6 +161,7 @@ public class VeinMiner {
         proxy.registerCommonEvents();
         MinecraftForge.EVENT_BUS.register(this);
         MinecraftForge.EVENT_BUS.register(new CoreEvents());
+        ForgeChunkManager.setForcedChunkLoadingCallback(this, new ChunkKeeper.LoadingCallback());
     }
 
     public void setupNetworking() {
@@ -234,6 +238,16 @@ public class VeinMiner {
         serverCommandManger.registerCommand(new MinerCommand(minerServer));
     }
 
+    @SuppressWarnings("UnusedDeclaration")
+    @EventHandler
+    public void remapIds(FMLModIdMappingEvent event) {
+        // Block ids may have changed, so the cached block state ids are invalid.
+        configurationSettings.invalidateBlockStateIds();
+        if(minerServer != null) {
+            minerServer.getConfigurationSettings().invalidateBlockStateIds();
+        }
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     @Mod.EventHandler
     public void imcCallback(FMLInterModComms.IMCEvent event) {
@@ -23,6 +23,19 @@ package portablejim.veinminer.api;
  * Has been mostly been copied from Bspkrs' bspkrsCore mod.
  */
 public class Point {
+    /*
+     * Layout of a packed point: 26 bits of x, 12 bits of y and 26 bits of z.
+     * This covers the whole world border and a y range of -2048 to 2047.
+     */
+    private static final int NUM_X_BITS = 26;
+    private static final int NUM_Z_BITS = NUM_X_BITS;
+    private static final int NUM_Y_BITS = 64 - NUM_X_BITS - NUM_Z_BITS;
+    private static final int Y_SHIFT = NUM_Z_BITS;
+    private static final int X_SHIFT = Y_SHIFT + NUM_Y_BITS;
+    private static final long X_MASK = (1L << NUM_X_BITS) - 1L;
+    private static final long Y_MASK = (1L << NUM_Y_BITS) - 1L;
+    private static final long Z_MASK = (1L << NUM_Z_BITS) - 1L;
+
     private int x;
     private int y;
     private int z;
@@ -44,14 +57,43 @@ public class Point {
         return this.z;
     }
 
+    /**
+     * Packs the coordinates into a single long, so points can be stored
+     * without allocating a Point for each one.
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param z Z coordinate.
+     * @return packed point
+     */
+    public static long toLong(int x, int y, int z) {
+        return ((long) x & X_MASK) << X_SHIFT | ((long) y & Y_MASK) << Y_SHIFT | ((long) z & Z_MASK);
+    }
+
+    public long toLong() {
+        return toLong(x, y, z);
+    }
+
+    public static Point fromLong(long packed) {
+        return new Point(unpackX(packed), unpackY(packed), unpackZ(packed));
+    }
+
+    public static int unpackX(long packed) {
+        return (int) (packed << (64 - X_SHIFT - NUM_X_BITS) >> (64 - NUM_X_BITS));
+    }
+
+    public static int unpackY(long packed) {
+        return (int) (packed << (64 - Y_SHIFT - NUM_Y_BITS) >> (64 - NUM_Y_BITS));
+    }
+
+    public static int unpackZ(long packed) {
+        return (int) (packed << (64 - NUM_Z_BITS) >> (64 - NUM_Z_BITS));
+    }
+
     @Override
     public  int hashCode() {
-        int hash = 5;
-        hash += (13 * this.x);
-        hash += (19 * this.y);
-        hash += (31 * this.z);
-
-        return hash;
+        // Mix the packed point so that points along diagonals do not collide.
+        long hash = toLong() * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
     }
 
     @Override
@@ -0,0 +1,54 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.api;
+
+import cpw.mods.fml.common.eventhandler.Event;
+import net.minecraft.entity.player.EntityPlayerMP;
+
+/**
+ * Event called once per tick with all the blocks a player has tried to
+ * destroy by Veinmine-ing during the tick. Use this instead of
+ * VeinminerPostUseTool when the work can be done once for many blocks and
+ * can wait until the end of the tick. Anything that has to happen before
+ * the next block is mined, like repairing the tool, should still use
+ * VeinminerPostUseTool.
+ */
+
+public class VeinminerPostUseToolBatch extends Event {
+    public enum Outcome {
+        /** The block was destroyed. */
+        HARVESTED,
+        /** The block was not destroyed, but VeinminerHarvestFailedCheck allowed mining to continue. */
+        CONTINUED,
+        /** The block was not destroyed, so the vein stops at the block. */
+        FAILED
+    }
+
+    public final EntityPlayerMP player;
+    /** Blocks in the order they were mined. */
+    public final Point[] blockPoints;
+    /** What happened to each block in blockPoints. */
+    public final Outcome[] outcomes;
+
+    public VeinminerPostUseToolBatch(EntityPlayerMP player, Point[] blockPoints, Outcome[] outcomes) {
+        this.player = player;
+        this.blockPoints = blockPoints;
+        this.outcomes = outcomes;
+    }
+}
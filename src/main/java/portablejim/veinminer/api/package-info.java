@@ -1,4 +1,4 @@
-@API(owner = ModInfo.MODID, apiVersion = "0.3", provides = ModInfo.MODID + "Api")
+@API(owner = ModInfo.MODID, apiVersion = "0.4", provides = ModInfo.MODID + "Api")
 package portablejim.veinminer.api;
 
 import cpw.mods.fml.common.API;
@@ -31,6 +31,8 @@ import portablejim.veinminer.util.BlockID;
 import portablejim.veinminer.util.PreferredMode;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -76,6 +78,7 @@ public class ConfigurationSettings {
                 if(toolInstance.icon == null) toolInstance.icon = "";
                 if(toolInstance.blocklist == null) toolInstance.blocklist = new String[]{};
                 if(toolInstance.toollist == null) toolInstance.toollist = new String[]{};
+                if(toolInstance.traversal == null) toolInstance.traversal = "";
                 toolsAndBlocks.put(toolName, new Tool(toolInstance));
             }
         }
@@ -98,17 +101,30 @@ public class ConfigurationSettings {
 
         setBlockLimit(configValues.BLOCK_LIMIT);
         setBlocksPerTick(configValues.BLOCKS_PER_TICK);
+        setTickTimeBudget(configValues.TICK_TIME_BUDGET);
+        setMaxMeanTickTime(configValues.MAX_MEAN_TICK_TIME);
+        setGlobalBlocksPerTick(configValues.GLOBAL_BLOCKS_PER_TICK);
+        setPlayerWeights(configValues.PLAYER_WEIGHTS);
         setRadiusLimit(configValues.RADIUS_LIMIT);
 
         setBlockCongruenceList(configValues.BLOCK_EQUIVALENCY_LIST);
         setHungerModifier(configValues.HUNGER_MULTIPLIER);
         setExperienceModifier(configValues.EXPERIENCE_MULTIPLIER);
+        setDropsToInventory(configValues.DROPS_TO_INVENTORY);
+        setDropFlushItems(configValues.DROP_FLUSH_ITEMS);
+        setDropFlushInterval(configValues.DROP_FLUSH_INTERVAL);
+        setDropFlushStacks(configValues.DROP_FLUSH_STACKS);
+        setPlannerChunkRadius(configValues.PLANNER_CHUNK_RADIUS);
+        setUnloadedChunkWait(configValues.UNLOADED_CHUNK_WAIT);
+        setKeepLoadedChunks(configValues.KEEP_LOADED_CHUNKS);
 
         setEnableAllBlocks(configValues.ENABLE_ALL_BLOCKS);
         setEnableAllTools(configValues.ENABLE_ALL_TOOLS);
 
         setPreferredMode(configValues.CLIENT_PREFERRED_MODE, ConfigurationValues.CLIENT_PREFERRED_MODE_DEFAULT);
 
+        invalidateBlockStateIds();
+
         if(defaultsAdded) {
             saveConfigs();
         }
@@ -128,6 +144,98 @@ public class ConfigurationSettings {
         this.enableAllBlocks = enableAllBlocks;
     }
 
+    public boolean getDropsToInventory() {
+        return dropsToInventory;
+    }
+
+    public void setDropsToInventory(boolean dropsToInventory) {
+        this.dropsToInventory = dropsToInventory;
+    }
+
+    public int getDropFlushItems() {
+        return dropFlushItems;
+    }
+
+    public void setDropFlushItems(int dropFlushItems) {
+        if(dropFlushItems < 0) {
+            dropFlushItems = 0;
+        }
+
+        this.dropFlushItems = dropFlushItems;
+    }
+
+    public int getDropFlushInterval() {
+        return dropFlushInterval;
+    }
+
+    public void setDropFlushInterval(int dropFlushInterval) {
+        if(dropFlushInterval < 0) {
+            dropFlushInterval = 0;
+        }
+        else if(dropFlushInterval > 72000) {
+            dropFlushInterval = 72000;
+        }
+
+        this.dropFlushInterval = dropFlushInterval;
+    }
+
+    public int getDropFlushStacks() {
+        return dropFlushStacks;
+    }
+
+    public void setDropFlushStacks(int dropFlushStacks) {
+        if(dropFlushStacks < 1) {
+            dropFlushStacks = 1;
+        }
+
+        this.dropFlushStacks = dropFlushStacks;
+    }
+
+    public int getPlannerChunkRadius() {
+        return plannerChunkRadius;
+    }
+
+    public void setPlannerChunkRadius(int plannerChunkRadius) {
+        if(plannerChunkRadius < 0) {
+            plannerChunkRadius = 0;
+        }
+        else if(plannerChunkRadius > 4) {
+            plannerChunkRadius = 4;
+        }
+
+        this.plannerChunkRadius = plannerChunkRadius;
+    }
+
+    public int getUnloadedChunkWait() {
+        return unloadedChunkWait;
+    }
+
+    public void setUnloadedChunkWait(int unloadedChunkWait) {
+        if(unloadedChunkWait < 0) {
+            unloadedChunkWait = 0;
+        }
+        else if(unloadedChunkWait > 1200) {
+            unloadedChunkWait = 1200;
+        }
+
+        this.unloadedChunkWait = unloadedChunkWait;
+    }
+
+    public int getKeepLoadedChunks() {
+        return keepLoadedChunks;
+    }
+
+    public void setKeepLoadedChunks(int keepLoadedChunks) {
+        if(keepLoadedChunks < 0) {
+            keepLoadedChunks = 0;
+        }
+        else if(keepLoadedChunks > 64) {
+            keepLoadedChunks = 64;
+        }
+
+        this.keepLoadedChunks = keepLoadedChunks;
+    }
+
     public boolean getEnableAllTools() {
         return enableAllTools;
     }
@@ -156,6 +264,32 @@ public class ConfigurationSettings {
 
     private int blocksPerTick;
 
+    private int tickTimeBudget;
+
+    private int maxMeanTickTime;
+
+    private int globalBlocksPerTick;
+
+    /**
+     * Weights of players (by lower case name) when sharing out the blocks
+     * mined each tick.
+     */
+    private Map<String, Integer> playerWeights = new HashMap<String, Integer>();
+
+    private boolean dropsToInventory;
+
+    private int dropFlushItems;
+
+    private int dropFlushInterval;
+
+    private int dropFlushStacks;
+
+    private int plannerChunkRadius;
+
+    private int unloadedChunkWait;
+
+    private int keepLoadedChunks;
+
     private boolean enableAllBlocks;
 
     private boolean enableAllTools;
@@ -164,6 +298,16 @@ public class ConfigurationSettings {
 
     private Map<String, Tool> toolsAndBlocks;
 
+    /*
+     * Block whitelists and congruence groups converted to block state ids
+     * (see BlockID.getStateId()). Rebuilt when the lists change or when
+     * block ids are remapped.
+     */
+    private boolean blockStateIdsValid = false;
+    private Map<String, BitSet> toolBlockStates = new HashMap<String, BitSet>();
+    private int[] blockStateCongruenceGroups;
+    private List<BitSet> blockStateCongruenceLists = new ArrayList<BitSet>();
+
     void setAutodetectBlocksToggle(ToolType tool, boolean value) {
         autoDetectBlocksToggle[tool.ordinal()] = value;
     }
@@ -190,6 +334,7 @@ public class ConfigurationSettings {
         if(!newType.isEmpty() && !toolsAndBlocks.containsKey(newType)) {
             Tool newTool = new Tool(name, icon, new String[]{}, new String[]{});
             toolsAndBlocks.put(newType, newTool);
+            invalidateBlockStateIds();
         }
     }
 
@@ -199,6 +344,7 @@ public class ConfigurationSettings {
             if(!toolsAndBlocks.get(tool).blocklist.contains(block) && !toolsAndBlocks.get(tool).blocklist.contains(testBlock)) {
                 block.metadata = block.metadata == OreDictionary.WILDCARD_VALUE ? -1 : block.metadata;
                 toolsAndBlocks.put(tool, toolsAndBlocks.get(tool).addBlock(block));
+                invalidateBlockStateIds();
             }
         }
     }
@@ -212,6 +358,7 @@ public class ConfigurationSettings {
         else if(toolsAndBlocks.get(tool).blocklist.contains(blockNoMeta)) {
             toolsAndBlocks.put(tool, toolsAndBlocks.get(tool).removeBlock(blockNoMeta));
         }
+        invalidateBlockStateIds();
     }
 
     public ArrayList<String> getBlockIDArray(String toolType) {
@@ -222,10 +369,21 @@ public class ConfigurationSettings {
         return output;
     }
 
-    public boolean whiteListHasBlockId(String tool, BlockID targetBlock) {
-        BlockID targetBlockNoMeta = new BlockID(targetBlock.name, targetBlock.metadata);
-        targetBlockNoMeta.metadata = -1;
-        return toolsAndBlocks.get(tool).blocklist.contains(targetBlock) || toolsAndBlocks.get(tool).blocklist.contains(targetBlockNoMeta);
+    public boolean whiteListHasBlockState(String tool, int stateId) {
+        updateBlockStateIds();
+        BitSet blockStates = toolBlockStates.get(tool);
+        return blockStates != null && blockStates.get(stateId);
+    }
+
+    /**
+     * Gets the block states whitelisted for the tool type.
+     * @param tool Tool type name.
+     * @return Set of whitelisted block state ids. Must not be modified.
+     */
+    public BitSet getWhiteListBlockStates(String tool) {
+        updateBlockStateIds();
+        BitSet blockStates = toolBlockStates.get(tool);
+        return blockStates != null ? blockStates : new BitSet();
     }
 
     public void addCongruentBlocks(String existingBlock, String newBlock) {
@@ -270,6 +428,7 @@ public class ConfigurationSettings {
                 blockCongruenceList.add(newId, newCongruentBlocks);
             }
         }
+        invalidateBlockStateIds();
     }
 
     public String getBlockCongruenceList() {
@@ -286,29 +445,69 @@ public class ConfigurationSettings {
         return blockCongruenceList.get(listId);
     }
 
-    public boolean areBlocksCongruent(BlockID block1, BlockID block2) {
-        BlockID block1NoMeta = new BlockID(block1.name, block1.metadata);
-        block1NoMeta.metadata = -1;
-        BlockID block2NoMeta = new BlockID(block2.name, block2.metadata);
-        block2NoMeta.metadata = -1;
+    /**
+     * Gets the block states congruent to the given block state.
+     * @param stateId Block state id to look up.
+     * @return Set of congruent block state ids, or null if the block state
+     * is not congruent to anything. Must not be modified.
+     */
+    public BitSet getCongruentBlockStates(int stateId) {
+        updateBlockStateIds();
+        int group = blockStateCongruenceGroups[stateId];
+        return group != -1 ? blockStateCongruenceLists.get(group) : null;
+    }
+
+    /**
+     * Marks the block state id lists as out of date, e.g. when block ids
+     * have been remapped after loading a world.
+     */
+    public void invalidateBlockStateIds() {
+        blockStateIdsValid = false;
+    }
 
-        int targetBlock1;
-        int targetBlock2;
+    private void updateBlockStateIds() {
+        if(blockStateIdsValid) {
+            return;
+        }
 
-        if(blockCongruenceMap.containsKey(block1) || blockCongruenceMap.containsKey(block1NoMeta)) {
-            targetBlock1 = blockCongruenceMap.containsKey(block1) ? blockCongruenceMap.get(block1) : blockCongruenceMap.get(block1NoMeta);
+        toolBlockStates.clear();
+        for(Map.Entry<String, Tool> tool : toolsAndBlocks.entrySet()) {
+            BitSet blockStates = new BitSet(BlockID.NUM_STATE_IDS);
+            for(BlockID blockID : tool.getValue().blocklist) {
+                int[] range = blockID.getStateIdRange();
+                if(range != null) {
+                    blockStates.set(range[0], range[1] + 1);
+                }
+            }
+            toolBlockStates.put(tool.getKey(), blockStates);
         }
-        else {
-            return false;
+
+        if(blockStateCongruenceGroups == null) {
+            blockStateCongruenceGroups = new int[BlockID.NUM_STATE_IDS];
         }
-        if(blockCongruenceMap.containsKey(block2) || blockCongruenceMap.containsKey(block2NoMeta)) {
-            targetBlock2 = blockCongruenceMap.containsKey(block2) ? blockCongruenceMap.get(block2) : blockCongruenceMap.get(block2NoMeta);
+        Arrays.fill(blockStateCongruenceGroups, -1);
+        // Blocks with metadata take priority over blocks without, so fill those last.
+        for(boolean withMetadata : new boolean[] {false, true}) {
+            for(int group = 0; group < blockCongruenceList.size(); group++) {
+                for(BlockID congruentBlock : blockCongruenceList.get(group)) {
+                    int[] range = congruentBlock.getStateIdRange();
+                    if(range != null && (congruentBlock.metadata != -1) == withMetadata) {
+                        Arrays.fill(blockStateCongruenceGroups, range[0], range[1] + 1, group);
+                    }
+                }
+            }
         }
-        else {
-            return false;
+        blockStateCongruenceLists.clear();
+        for(int group = 0; group < blockCongruenceList.size(); group++) {
+            blockStateCongruenceLists.add(new BitSet(BlockID.NUM_STATE_IDS));
+        }
+        for(int stateId = 0; stateId < BlockID.NUM_STATE_IDS; stateId++) {
+            if(blockStateCongruenceGroups[stateId] != -1) {
+                blockStateCongruenceLists.get(blockStateCongruenceGroups[stateId]).set(stateId);
+            }
         }
 
-        return targetBlock1 == targetBlock2;
+        blockStateIdsValid = true;
     }
 
     public void addTool(String tool, String name) {
@@ -331,6 +530,15 @@ public class ConfigurationSettings {
         return toolsAndBlocks.get(toolType).icon;
     }
 
+    /**
+     * Gets the name of the traversal used to find blocks with the tool type.
+     * @param toolType Tool type name.
+     * @return Name of the traversal, or an empty string for the default.
+     */
+    public String getToolTypeTraversal(String toolType) {
+        return toolsAndBlocks.get(toolType).traversal;
+    }
+
     public ArrayList<String> getToolIdArray(String tool) {
         return new ArrayList<String>(toolsAndBlocks.get(tool).toollist);
     }
@@ -376,6 +584,95 @@ public class ConfigurationSettings {
         this.blocksPerTick = blocksPerTick;
     }
 
+    public int getTickTimeBudget() {
+        return tickTimeBudget;
+    }
+
+    public void setTickTimeBudget(int tickTimeBudget) {
+        if (tickTimeBudget < 0) {
+            tickTimeBudget = 0;
+        }
+        else if (tickTimeBudget > 50000000) {
+            tickTimeBudget = 50000000;
+        }
+
+        this.tickTimeBudget = tickTimeBudget;
+    }
+
+    public int getMaxMeanTickTime() {
+        return maxMeanTickTime;
+    }
+
+    public void setMaxMeanTickTime(int maxMeanTickTime) {
+        if (maxMeanTickTime < 1) {
+            maxMeanTickTime = 1;
+        }
+        else if (maxMeanTickTime > 1000) {
+            maxMeanTickTime = 1000;
+        }
+
+        this.maxMeanTickTime = maxMeanTickTime;
+    }
+
+    public int getGlobalBlocksPerTick() {
+        return globalBlocksPerTick;
+    }
+
+    public void setGlobalBlocksPerTick(int globalBlocksPerTick) {
+        if (globalBlocksPerTick < -1) {
+            globalBlocksPerTick = -1;
+        }
+
+        this.globalBlocksPerTick = globalBlocksPerTick;
+    }
+
+    /**
+     * Sets the player weights from the list.
+     * @param weightList String of player weights. Format is 'playerName=weight'.
+     *                   Use ',' to separate players.
+     *                   See {@link ConfigurationValues}
+     */
+    void setPlayerWeights(String weightList) {
+        playerWeights.clear();
+        for(String playerWeight : weightList.split(",")) {
+            String[] parts = playerWeight.split("=");
+            if(parts.length != 2 || parts[0].trim().isEmpty()) {
+                continue;
+            }
+            try {
+                setPlayerWeight(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+            }
+            catch (NumberFormatException ignored) {
+
+            }
+        }
+    }
+
+    public String getPlayerWeights() {
+        ArrayList<String> weights = new ArrayList<String>();
+        for(Map.Entry<String, Integer> playerWeight : playerWeights.entrySet()) {
+            weights.add(String.format("%s=%d", playerWeight.getKey(), playerWeight.getValue()));
+        }
+        Collections.sort(weights);
+        return Joiner.on(',').join(weights);
+    }
+
+    public void setPlayerWeight(String playerName, int weight) {
+        if (weight < 1) {
+            weight = 1;
+        }
+        else if (weight > 1000) {
+            weight = 1000;
+        }
+
+        playerWeights.put(playerName.toLowerCase(), weight);
+    }
+
+    public int getPlayerWeight(String playerName) {
+        Integer weight = playerWeights.get(playerName.toLowerCase());
+        return weight != null ? weight : 1;
+    }
+
     private int hungerModifier;
     private int experienceModifier;
 
@@ -468,11 +765,22 @@ public class ConfigurationSettings {
 
         configValues.BLOCK_LIMIT = getBlockLimit();
         configValues.BLOCKS_PER_TICK = getBlocksPerTick();
+        configValues.TICK_TIME_BUDGET = getTickTimeBudget();
+        configValues.MAX_MEAN_TICK_TIME = getMaxMeanTickTime();
+        configValues.GLOBAL_BLOCKS_PER_TICK = getGlobalBlocksPerTick();
+        configValues.PLAYER_WEIGHTS = getPlayerWeights();
         configValues.RADIUS_LIMIT = getRadiusLimit();
 
         configValues.BLOCK_EQUIVALENCY_LIST = getBlockCongruenceList();
         configValues.HUNGER_MULTIPLIER = getHungerMultiplier();
         configValues.EXPERIENCE_MULTIPLIER = getExperienceMultiplier();
+        configValues.DROPS_TO_INVENTORY = getDropsToInventory();
+        configValues.DROP_FLUSH_ITEMS = getDropFlushItems();
+        configValues.DROP_FLUSH_INTERVAL = getDropFlushInterval();
+        configValues.DROP_FLUSH_STACKS = getDropFlushStacks();
+        configValues.PLANNER_CHUNK_RADIUS = getPlannerChunkRadius();
+        configValues.UNLOADED_CHUNK_WAIT = getUnloadedChunkWait();
+        configValues.KEEP_LOADED_CHUNKS = getKeepLoadedChunks();
 
         configValues.ENABLE_ALL_BLOCKS = getEnableAllBlocks();
         configValues.ENABLE_ALL_TOOLS = getEnableAllTools();
@@ -508,6 +816,9 @@ public class ConfigurationSettings {
             jsonTool.add("icon", new JsonPrimitive(tool.icon));
             jsonTool.add("toollist", toolList);
             jsonTool.add("blocklist", blockList);
+            if(!tool.traversal.isEmpty()) {
+                jsonTool.add("traversal", new JsonPrimitive(tool.traversal));
+            }
 
             jsonTools.add(toolName, jsonTool);
         }
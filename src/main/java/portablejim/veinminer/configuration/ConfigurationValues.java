@@ -73,7 +73,27 @@ public class ConfigurationValues {
     public int BLOCKS_PER_TICK;
     public static final int BLOCKS_PER_TICK_DEFAULT = 10;
     public static final String BLOCKS_PER_TICK_CONFIGNAME = "limit.blocksPerTick";
-    public static final String BLOCKS_PER_TICK_DESCRIPTION = String.format("Maximum number of blocks to be removed per game tick (1/20 seconds). Using a low number will keep the game from getting huge performance drops but also decreases the speed at which blocks are destroyed. [range: 1 ~ 1000, default: %d]", BLOCKS_PER_TICK_DEFAULT);
+    public static final String BLOCKS_PER_TICK_DESCRIPTION = String.format("Maximum number of blocks to be removed per game tick (1/20 seconds). Using a low number will keep the game from getting huge performance drops but also decreases the speed at which blocks are destroyed. Ignored while limit.tickTimeBudget is more than 0. [range: 1 ~ 1000, default: %d]", BLOCKS_PER_TICK_DEFAULT);
+
+    public int TICK_TIME_BUDGET;
+    public static final int TICK_TIME_BUDGET_DEFAULT = 0;
+    public static final String TICK_TIME_BUDGET_CONFIGNAME = "limit.tickTimeBudget";
+    public static final String TICK_TIME_BUDGET_DESCRIPTION = String.format("Maximum time in nanoseconds to spend mining blocks each game tick. Only time left over in the tick after the worlds have been updated is used. Use 0 to mine limit.blocksPerTick blocks every tick instead. [range: 0 ~ 50000000, default: %d]", TICK_TIME_BUDGET_DEFAULT);
+
+    public int MAX_MEAN_TICK_TIME;
+    public static final int MAX_MEAN_TICK_TIME_DEFAULT = 45;
+    public static final String MAX_MEAN_TICK_TIME_CONFIGNAME = "limit.maxMeanTickTime";
+    public static final String MAX_MEAN_TICK_TIME_DESCRIPTION = String.format("When the mean tick time of the server in milliseconds is above this, only 1 block is mined per vein each tick. Only used when limit.tickTimeBudget is not 0. [range: 1 ~ 1000, default: %d]", MAX_MEAN_TICK_TIME_DEFAULT);
+
+    public int GLOBAL_BLOCKS_PER_TICK;
+    public static final int GLOBAL_BLOCKS_PER_TICK_DEFAULT = -1;
+    public static final String GLOBAL_BLOCKS_PER_TICK_CONFIGNAME = "limit.globalBlocksPerTick";
+    public static final String GLOBAL_BLOCKS_PER_TICK_DESCRIPTION = String.format("Maximum number of blocks to be removed per game tick by all players together. The blocks are shared out between the players who are mining veins. Use -1 for no limit. [range: -1 ~ 2147483647, default: %d]", GLOBAL_BLOCKS_PER_TICK_DEFAULT);
+
+    public String PLAYER_WEIGHTS;
+    public static final String PLAYER_WEIGHTS_DEFAULT = "";
+    public static final String PLAYER_WEIGHTS_CONFIGNAME = "limit.playerWeights";
+    public static final String PLAYER_WEIGHTS_DESCRIPTION = "Share of the blocks mined each tick given to players when more than one player is mining a vein. Players not listed have a weight of 1.\nFormatted like 'playerName=weight'. Separate players with ','. [range of weight: 1 ~ 1000, default: '']";
 
     public int HUNGER_MULTIPLIER;
     public static final int HUNGER_MULTIPLIER_DEFAULT = 0;
@@ -85,6 +105,41 @@ public class ConfigurationValues {
     public static final String EXPERIENCE_MULTIPLIER_CONFIGNAME = "expmodifier";
     public static final String EXPERIENCE_MULTIPLIER_DESCRIPTION = String.format("Change how much experience is required to Veinmine and how much experience each block uses. [range: 0 to 2147483647, default: %d]", EXPERIENCE_MULTIPLIER_DEFAULT);
 
+    public boolean DROPS_TO_INVENTORY;
+    public static final boolean DROPS_TO_INVENTORY_DEFAULT = false;
+    public static final String DROPS_TO_INVENTORY_CONFIGNAME = "dropsToInventory";
+    public static final String DROPS_TO_INVENTORY_DESCRIPTION = "Put the items dropped by a vein straight into the player's inventory. Items that don't fit are dropped at the first block.";
+
+    public int DROP_FLUSH_ITEMS;
+    public static final int DROP_FLUSH_ITEMS_DEFAULT = 0;
+    public static final String DROP_FLUSH_ITEMS_CONFIGNAME = "dropFlushItems";
+    public static final String DROP_FLUSH_ITEMS_DESCRIPTION = String.format("Drop the items collected while mining a vein once this many have been collected, instead of waiting for the vein to finish. Use 0 to only drop them when the vein is finished. [range: 0 to 2147483647, default: %d]", DROP_FLUSH_ITEMS_DEFAULT);
+
+    public int DROP_FLUSH_INTERVAL;
+    public static final int DROP_FLUSH_INTERVAL_DEFAULT = 0;
+    public static final String DROP_FLUSH_INTERVAL_CONFIGNAME = "dropFlushInterval";
+    public static final String DROP_FLUSH_INTERVAL_DESCRIPTION = String.format("Drop the items collected while mining a vein every this many game ticks, instead of waiting for the vein to finish. Use 0 to only drop them when the vein is finished. [range: 0 to 72000, default: %d]", DROP_FLUSH_INTERVAL_DEFAULT);
+
+    public int DROP_FLUSH_STACKS;
+    public static final int DROP_FLUSH_STACKS_DEFAULT = 64;
+    public static final String DROP_FLUSH_STACKS_CONFIGNAME = "dropFlushStacks";
+    public static final String DROP_FLUSH_STACKS_DESCRIPTION = String.format("Most item stacks and experience orbs dropped each game tick when dropping the items collected before a vein is finished. The rest are dropped over the next ticks. Everything left is dropped at once when the vein finishes. [range: 1 to 2147483647, default: %d]", DROP_FLUSH_STACKS_DEFAULT);
+
+    public int PLANNER_CHUNK_RADIUS;
+    public static final int PLANNER_CHUNK_RADIUS_DEFAULT = 0;
+    public static final String PLANNER_CHUNK_RADIUS_CONFIGNAME = "plannerChunkRadius";
+    public static final String PLANNER_CHUNK_RADIUS_DESCRIPTION = String.format("Find the blocks in a vein on another thread, using a copy of the loaded chunks up to this many chunks away from the first block. Blocks are still checked again just before they are mined. Use 0 to find the blocks while mining. [range: 0 to 4, default: %d]", PLANNER_CHUNK_RADIUS_DEFAULT);
+
+    public int UNLOADED_CHUNK_WAIT;
+    public static final int UNLOADED_CHUNK_WAIT_DEFAULT = 0;
+    public static final String UNLOADED_CHUNK_WAIT_CONFIGNAME = "unloadedChunkWait";
+    public static final String UNLOADED_CHUNK_WAIT_DESCRIPTION = String.format("Veins never load chunks. Blocks next to a vein that are in unloaded chunks are kept for up to this many game ticks, and mined if their chunk is loaded in that time. Use 0 to skip them straight away. [range: 0 to 1200, default: %d]", UNLOADED_CHUNK_WAIT_DEFAULT);
+
+    public int KEEP_LOADED_CHUNKS;
+    public static final int KEEP_LOADED_CHUNKS_DEFAULT = 9;
+    public static final String KEEP_LOADED_CHUNKS_CONFIGNAME = "keepLoadedChunks";
+    public static final String KEEP_LOADED_CHUNKS_DESCRIPTION = String.format("Keep up to this many chunks with blocks a vein still has to check loaded, so they aren't unloaded and loaded again while mining. The chunk the vein started in is not kept loaded, so veins in one chunk don't use a chunk loading ticket. Also limited by the chunks per ticket in forgeChunkLoading.cfg. Use 0 to not keep chunks loaded. [range: 0 to 64, default: %d]", KEEP_LOADED_CHUNKS_DEFAULT);
+
     public boolean ENABLE_ALL_BLOCKS;
     public static final boolean ENABLE_ALL_BLOCKS_DEFAULT = false;
     public static final String ENABLE_ALL_BLOCKS_CONFIGNAME = "override.allBlocks";
@@ -169,10 +224,21 @@ public class ConfigurationValues {
         BLOCK_LIMIT = configFile.get(CONFIG_LIMITS, BLOCK_LIMIT_CONFIGNAME, BLOCK_LIMIT_DEFAULT, BLOCK_LIMIT_DESCRIPTION).getInt(BLOCK_LIMIT_DEFAULT);
         RADIUS_LIMIT = configFile.get(CONFIG_LIMITS, RADIUS_LIMIT_CONFIGNAME, RADIUS_LIMIT_DEFAULT, RADIUS_LIMIT_DESCRIPTION).getInt(RADIUS_LIMIT_DEFAULT);
         BLOCKS_PER_TICK = configFile.get(CONFIG_LIMITS, BLOCKS_PER_TICK_CONFIGNAME, BLOCKS_PER_TICK_DEFAULT, BLOCKS_PER_TICK_DESCRIPTION).getInt(BLOCKS_PER_TICK_DEFAULT);
+        TICK_TIME_BUDGET = configFile.get(CONFIG_LIMITS, TICK_TIME_BUDGET_CONFIGNAME, TICK_TIME_BUDGET_DEFAULT, TICK_TIME_BUDGET_DESCRIPTION).getInt(TICK_TIME_BUDGET_DEFAULT);
+        MAX_MEAN_TICK_TIME = configFile.get(CONFIG_LIMITS, MAX_MEAN_TICK_TIME_CONFIGNAME, MAX_MEAN_TICK_TIME_DEFAULT, MAX_MEAN_TICK_TIME_DESCRIPTION).getInt(MAX_MEAN_TICK_TIME_DEFAULT);
+        GLOBAL_BLOCKS_PER_TICK = configFile.get(CONFIG_LIMITS, GLOBAL_BLOCKS_PER_TICK_CONFIGNAME, GLOBAL_BLOCKS_PER_TICK_DEFAULT, GLOBAL_BLOCKS_PER_TICK_DESCRIPTION).getInt(GLOBAL_BLOCKS_PER_TICK_DEFAULT);
+        PLAYER_WEIGHTS = configFile.get(CONFIG_LIMITS, PLAYER_WEIGHTS_CONFIGNAME, PLAYER_WEIGHTS_DEFAULT, PLAYER_WEIGHTS_DESCRIPTION).getString();
 
         BLOCK_EQUIVALENCY_LIST = configFile.get(CONFIG_MISC, BLOCK_EQUIVALENCY_LIST_CONFIGNAME, BLOCK_EQUIVALENCY_LIST_DEFAULT, BLOCK_EQUIVALENCY_LIST_DESCRIPTION).getString();
         HUNGER_MULTIPLIER = configFile.get(CONFIG_MISC, HUNGER_MULTIPLIER_CONFIGNAME, HUNGER_MULTIPLIER_DEFAULT, HUNGER_MULTIPLIER_DESCRIPTION).getInt();
         EXPERIENCE_MULTIPLIER = configFile.get(CONFIG_MISC, EXPERIENCE_MULTIPLIER_CONFIGNAME, EXPERIENCE_MULTIPLIER_DEFAULT, EXPERIENCE_MULTIPLIER_DESCRIPTION).getInt();
+        DROPS_TO_INVENTORY = configFile.get(CONFIG_MISC, DROPS_TO_INVENTORY_CONFIGNAME, DROPS_TO_INVENTORY_DEFAULT, DROPS_TO_INVENTORY_DESCRIPTION).getBoolean(DROPS_TO_INVENTORY_DEFAULT);
+        DROP_FLUSH_ITEMS = configFile.get(CONFIG_MISC, DROP_FLUSH_ITEMS_CONFIGNAME, DROP_FLUSH_ITEMS_DEFAULT, DROP_FLUSH_ITEMS_DESCRIPTION).getInt(DROP_FLUSH_ITEMS_DEFAULT);
+        DROP_FLUSH_INTERVAL = configFile.get(CONFIG_MISC, DROP_FLUSH_INTERVAL_CONFIGNAME, DROP_FLUSH_INTERVAL_DEFAULT, DROP_FLUSH_INTERVAL_DESCRIPTION).getInt(DROP_FLUSH_INTERVAL_DEFAULT);
+        DROP_FLUSH_STACKS = configFile.get(CONFIG_MISC, DROP_FLUSH_STACKS_CONFIGNAME, DROP_FLUSH_STACKS_DEFAULT, DROP_FLUSH_STACKS_DESCRIPTION).getInt(DROP_FLUSH_STACKS_DEFAULT);
+        PLANNER_CHUNK_RADIUS = configFile.get(CONFIG_MISC, PLANNER_CHUNK_RADIUS_CONFIGNAME, PLANNER_CHUNK_RADIUS_DEFAULT, PLANNER_CHUNK_RADIUS_DESCRIPTION).getInt(PLANNER_CHUNK_RADIUS_DEFAULT);
+        UNLOADED_CHUNK_WAIT = configFile.get(CONFIG_MISC, UNLOADED_CHUNK_WAIT_CONFIGNAME, UNLOADED_CHUNK_WAIT_DEFAULT, UNLOADED_CHUNK_WAIT_DESCRIPTION).getInt(UNLOADED_CHUNK_WAIT_DEFAULT);
+        KEEP_LOADED_CHUNKS = configFile.get(CONFIG_MISC, KEEP_LOADED_CHUNKS_CONFIGNAME, KEEP_LOADED_CHUNKS_DEFAULT, KEEP_LOADED_CHUNKS_DESCRIPTION).getInt(KEEP_LOADED_CHUNKS_DEFAULT);
 
         ENABLE_ALL_BLOCKS = configFile.get(CONFIG_OVERRIDE, ENABLE_ALL_BLOCKS_CONFIGNAME, ENABLE_ALL_BLOCKS_DEFAULT, ENABLE_ALL_BLOCKS_DESCRIPTION).getBoolean(ENABLE_ALL_BLOCKS_DEFAULT);
         ENABLE_ALL_TOOLS = configFile.get(CONFIG_OVERRIDE, ENABLE_ALL_TOOLS_CONFIGNAME, ENABLE_ALL_TOOLS_DEFAULT, ENABLE_ALL_TOOLS_DESCRIPTION).getBoolean(ENABLE_ALL_TOOLS_DEFAULT);
@@ -189,10 +255,21 @@ public class ConfigurationValues {
         configFile.getCategory(CONFIG_LIMITS).get(BLOCK_LIMIT_CONFIGNAME).set(BLOCK_LIMIT);
         configFile.getCategory(CONFIG_LIMITS).get(RADIUS_LIMIT_CONFIGNAME).set(RADIUS_LIMIT);
         configFile.getCategory(CONFIG_LIMITS).get(BLOCKS_PER_TICK_CONFIGNAME).set(BLOCKS_PER_TICK);
+        configFile.getCategory(CONFIG_LIMITS).get(TICK_TIME_BUDGET_CONFIGNAME).set(TICK_TIME_BUDGET);
+        configFile.getCategory(CONFIG_LIMITS).get(MAX_MEAN_TICK_TIME_CONFIGNAME).set(MAX_MEAN_TICK_TIME);
+        configFile.getCategory(CONFIG_LIMITS).get(GLOBAL_BLOCKS_PER_TICK_CONFIGNAME).set(GLOBAL_BLOCKS_PER_TICK);
+        configFile.getCategory(CONFIG_LIMITS).get(PLAYER_WEIGHTS_CONFIGNAME).set(PLAYER_WEIGHTS);
 
         configFile.getCategory(CONFIG_MISC).get(BLOCK_EQUIVALENCY_LIST_CONFIGNAME).set(BLOCK_EQUIVALENCY_LIST);
         configFile.getCategory(CONFIG_MISC).get(HUNGER_MULTIPLIER_CONFIGNAME).set(HUNGER_MULTIPLIER);
         configFile.getCategory(CONFIG_MISC).get(EXPERIENCE_MULTIPLIER_CONFIGNAME).set(EXPERIENCE_MULTIPLIER);
+        configFile.getCategory(CONFIG_MISC).get(DROPS_TO_INVENTORY_CONFIGNAME).set(DROPS_TO_INVENTORY);
+        configFile.getCategory(CONFIG_MISC).get(DROP_FLUSH_ITEMS_CONFIGNAME).set(DROP_FLUSH_ITEMS);
+        configFile.getCategory(CONFIG_MISC).get(DROP_FLUSH_INTERVAL_CONFIGNAME).set(DROP_FLUSH_INTERVAL);
+        configFile.getCategory(CONFIG_MISC).get(DROP_FLUSH_STACKS_CONFIGNAME).set(DROP_FLUSH_STACKS);
+        configFile.getCategory(CONFIG_MISC).get(PLANNER_CHUNK_RADIUS_CONFIGNAME).set(PLANNER_CHUNK_RADIUS);
+        configFile.getCategory(CONFIG_MISC).get(UNLOADED_CHUNK_WAIT_CONFIGNAME).set(UNLOADED_CHUNK_WAIT);
+        configFile.getCategory(CONFIG_MISC).get(KEEP_LOADED_CHUNKS_CONFIGNAME).set(KEEP_LOADED_CHUNKS);
 
         configFile.getCategory(CONFIG_OVERRIDE).get(ENABLE_ALL_BLOCKS_CONFIGNAME).set(ENABLE_ALL_BLOCKS);
         configFile.getCategory(CONFIG_OVERRIDE).get(ENABLE_ALL_TOOLS_CONFIGNAME).set(ENABLE_ALL_TOOLS);
@@ -15,6 +15,11 @@ public class Tool {
     public String icon;
     public Set<String> toollist;
     public Set<BlockID> blocklist;
+    /**
+     * Name of the traversal used to find blocks with this tool type, or an
+     * empty string for the default.
+     */
+    public String traversal;
 
     public Tool(String name, String icon, String[] toollist, String[] blocklist) {
 	    this.name = name;
@@ -25,6 +30,7 @@ public class Tool {
 	    for(String block : blocklist) {
 	        this.blocklist.add(new BlockID(block));
 	    }
+        traversal = "";
     }
 
     public Tool(ToolStruct baseTool) {
@@ -36,6 +42,7 @@ public class Tool {
         for(String block : baseTool.blocklist) {
             blocklist.add(new BlockID(block));
         }
+        traversal = baseTool.traversal != null ? baseTool.traversal : "";
     }
 
     public Tool addTool(String tool) {
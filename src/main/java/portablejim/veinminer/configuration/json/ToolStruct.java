@@ -8,4 +8,5 @@ public class ToolStruct {
     public String icon;
     public String[] toollist;
     public String[] blocklist;
+    public String traversal;
 }
@@ -0,0 +1,174 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.core;
+
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.World;
+import net.minecraftforge.common.ForgeChunkManager;
+import net.minecraftforge.common.ForgeChunkManager.Ticket;
+import portablejim.veinminer.VeinMiner;
+import portablejim.veinminer.api.Point;
+import portablejim.veinminer.lib.MinerLogger;
+import portablejim.veinminer.util.LongHashSet;
+import portablejim.veinminer.util.LongObjectHashMap;
+
+import java.util.List;
+
+/**
+ * Keeps the chunks that have points queued for a vein loaded with a chunk
+ * loading ticket, so they aren't unloaded between ticks and then loaded
+ * again. Chunks are let go once they have no queued points left.
+ *
+ * The chunk the vein started in is never held, and the ticket is only
+ * requested when points are queued in another chunk, so veins that stay
+ * in one chunk don't use a ticket. Only chunks that are already loaded
+ * are held, and no more than the maximum number at a time.
+ */
+
+public class ChunkKeeper {
+    private final World world;
+    private final int maxChunks;
+    private final long startChunk;
+    /**
+     * Number of queued points in each chunk.
+     */
+    private final LongObjectHashMap<int[]> queuedPoints;
+    private final LongHashSet heldChunks;
+    private Ticket ticket;
+    private boolean ticketRequested;
+    private long lastChunk;
+    private int[] lastCount;
+
+    ChunkKeeper(World world, Point start, int maxChunks) {
+        this.world = world;
+        this.maxChunks = maxChunks;
+        startChunk = Point.toLong(start.getX() >> 4, 0, start.getZ() >> 4);
+        queuedPoints = new LongObjectHashMap<int[]>();
+        heldChunks = new LongHashSet();
+        ticket = null;
+        ticketRequested = false;
+        lastChunk = Long.MIN_VALUE;
+        lastCount = null;
+    }
+
+    /**
+     * Called when a point is queued for the vein.
+     * @param packedPoint The point (see {@link Point#toLong()}).
+     */
+    void add(long packedPoint) {
+        int chunkX = Point.unpackX(packedPoint) >> 4;
+        int chunkZ = Point.unpackZ(packedPoint) >> 4;
+        long chunkKey = Point.toLong(chunkX, 0, chunkZ);
+        int[] count = getCount(chunkKey);
+        if(count == null) {
+            count = new int[1];
+            queuedPoints.put(chunkKey, count);
+            lastChunk = chunkKey;
+            lastCount = count;
+        }
+        count[0]++;
+        if(count[0] == 1 && chunkKey != startChunk) {
+            hold(chunkKey, chunkX, chunkZ);
+        }
+    }
+
+    /**
+     * Called when a queued point is taken out of the queue.
+     * @param packedPoint The point (see {@link Point#toLong()}).
+     */
+    void remove(long packedPoint) {
+        long chunkKey = Point.toLong(Point.unpackX(packedPoint) >> 4, 0, Point.unpackZ(packedPoint) >> 4);
+        int[] count = getCount(chunkKey);
+        if(count == null) {
+            return;
+        }
+        count[0]--;
+        if(count[0] <= 0) {
+            queuedPoints.remove(chunkKey);
+            lastChunk = Long.MIN_VALUE;
+            lastCount = null;
+            if(heldChunks.remove(chunkKey)) {
+                ForgeChunkManager.unforceChunk(ticket, new ChunkCoordIntPair(Point.unpackX(chunkKey), Point.unpackZ(chunkKey)));
+            }
+        }
+    }
+
+    private int[] getCount(long chunkKey) {
+        if(chunkKey == lastChunk) {
+            return lastCount;
+        }
+        int[] count = queuedPoints.get(chunkKey);
+        if(count != null) {
+            lastChunk = chunkKey;
+            lastCount = count;
+        }
+        return count;
+    }
+
+    private void hold(long chunkKey, int chunkX, int chunkZ) {
+        if(!world.getChunkProvider().chunkExists(chunkX, chunkZ)) {
+            return;
+        }
+
+        if(ticket == null) {
+            if(ticketRequested) {
+                // Forge has run out of tickets for the mod.
+                return;
+            }
+            ticketRequested = true;
+            ticket = ForgeChunkManager.requestTicket(VeinMiner.instance, world, ForgeChunkManager.Type.NORMAL);
+            if(ticket == null) {
+                MinerLogger.debug("No chunk loading ticket available. Chunks won't be kept loaded for this vein.");
+                return;
+            }
+        }
+
+        if(heldChunks.size() >= Math.min(maxChunks, ticket.getMaxChunkListDepth())) {
+            return;
+        }
+        heldChunks.add(chunkKey);
+        ForgeChunkManager.forceChunk(ticket, new ChunkCoordIntPair(chunkX, chunkZ));
+    }
+
+    /**
+     * Lets go of every chunk held.
+     */
+    void release() {
+        if(ticket != null) {
+            ForgeChunkManager.releaseTicket(ticket);
+            ticket = null;
+        }
+        queuedPoints.clear();
+        heldChunks.clear();
+        lastChunk = Long.MIN_VALUE;
+        lastCount = null;
+    }
+
+    /**
+     * Lets go of the tickets left from before the server was stopped, as
+     * veins aren't carried on after a restart.
+     */
+    public static class LoadingCallback implements ForgeChunkManager.LoadingCallback {
+        public void ticketsLoaded(List<Ticket> tickets, World world) {
+            for(Ticket ticket : tickets) {
+                ForgeChunkManager.releaseTicket(ticket);
+            }
+        }
+    }
+}
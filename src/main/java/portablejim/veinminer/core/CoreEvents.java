@@ -6,6 +6,7 @@ import cpw.mods.fml.common.eventhandler.SubscribeEvent;
 import cpw.mods.fml.relauncher.Side;
 import net.minecraft.block.Block;
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.item.ItemStack;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.world.BlockEvent;
 import portablejim.veinminer.VeinMiner;
@@ -16,6 +17,8 @@ import portablejim.veinminer.util.BlockID;
 import portablejim.veinminer.util.Compatibility;
 import portablejim.veinminer.api.Point;
 
+import java.util.Iterator;
+
 /**
  * Created by james on 27/05/16.
  */
@@ -28,9 +31,20 @@ public class CoreEvents {
             return;
         }
 
+        // Blocks broken by a vein being mined don't start another vein.
+        HarvestContext context = HarvestContext.get();
+        if(context.isActive()) {
+            // Collect the experience instead of spawning an orb for every block.
+            if(context.isHarvesting(event.world, event.x, event.y, event.z) && !context.getInstance().getPlayer().capabilities.isCreativeMode) {
+                context.addExperience(event.getExpToDrop());
+                event.setExpToDrop(0);
+            }
+            return;
+        }
+
         Point breakPont = Compatibility.getPoint(event);
         MinerServer server = VeinMiner.instance.minerServer;
-        if(server == null || server.pointIsBlacklisted(breakPont)) {
+        if(server == null) {
            return;
         }
 
@@ -56,7 +70,39 @@ public class CoreEvents {
         }
     }
 
+    /**
+     * Takes the drops of a block being harvested by a vein straight from the
+     * event, so the item entities don't have to be spawned and then cancelled.
+     * Drops that can't be collected are left to be dropped normally.
+     */
+    @SubscribeEvent(priority = EventPriority.LOWEST)
     public void collectDrops(BlockEvent.HarvestDropsEvent event) {
+        if(event.world.isRemote) {
+            return;
+        }
 
+        HarvestContext context = HarvestContext.get();
+        if(!context.isHarvesting(event.world, event.x, event.y, event.z)) {
+            return;
+        }
+
+        // Leave it to the block to not drop anything.
+        if(!event.world.getGameRules().getGameRuleBooleanValue("doTileDrops")) {
+            return;
+        }
+
+        MinerInstance instance = context.getInstance();
+        Iterator<ItemStack> dropIterator = event.drops.iterator();
+        while(dropIterator.hasNext()) {
+            ItemStack drop = dropIterator.next();
+            if(!MinerInstance.canCollectDrop(drop)) {
+                continue;
+            }
+            dropIterator.remove();
+            // Same chance as the block would have dropped it with.
+            if(event.world.rand.nextFloat() <= event.dropChance) {
+                instance.addDrop(drop);
+            }
+        }
     }
 }
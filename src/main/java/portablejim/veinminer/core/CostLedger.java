@@ -0,0 +1,143 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.core;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.FoodStats;
+import portablejim.veinminer.util.ExpCalculator;
+
+/**
+ * Keeps track of the hunger and experience used by the blocks mined by a
+ * MinerInstance in a tick, so that they can be taken from the player all at
+ * once at the end of the tick. Until then, checks of the player's food and
+ * experience use the values read when the first block of the tick was
+ * mined, less what has been used since.
+ */
+
+class CostLedger {
+    private final EntityPlayerMP player;
+    private boolean loaded;
+
+    private int startFoodLevel;
+    private float startSaturation;
+    private float startExhaustion;
+    private int startExperience;
+
+    private float exhaustionTaken;
+    private int experienceTaken;
+
+    CostLedger(EntityPlayerMP player) {
+        this.player = player;
+        loaded = false;
+    }
+
+    private void load() {
+        if(loaded) {
+            return;
+        }
+        NBTTagCompound nbt = new NBTTagCompound();
+        player.getFoodStats().writeNBT(nbt);
+        startFoodLevel = nbt.getInteger("foodLevel");
+        startSaturation = nbt.getFloat("foodSaturationLevel");
+        startExhaustion = nbt.getFloat("foodExhaustionLevel");
+        startExperience = ExpCalculator.getExp(player.experienceLevel, player.experience);
+
+        exhaustionTaken = 0;
+        experienceTaken = 0;
+        loaded = true;
+    }
+
+    /**
+     * Food level of the player once the hunger used so far is taken.
+     */
+    int getFoodLevel() {
+        load();
+        float saturation = startSaturation - (float)((int)((startExhaustion + exhaustionTaken) / 4));
+        return saturation < 0 ? startFoodLevel + (int)saturation : startFoodLevel;
+    }
+
+    /**
+     * Total experience of the player once the experience used so far is
+     * taken.
+     */
+    int getExperience() {
+        load();
+        return startExperience - experienceTaken;
+    }
+
+    void takeHunger(float exhaustion) {
+        load();
+        exhaustionTaken += exhaustion;
+    }
+
+    void takeExperience(int experience) {
+        load();
+        experienceTaken += experience;
+    }
+
+    /**
+     * Takes the hunger and experience used since the last time from the
+     * player.
+     */
+    void apply() {
+        if(!loaded) {
+            return;
+        }
+        loaded = false;
+
+        if(exhaustionTaken > 0) {
+            // Every 4 exhaustion takes 1 saturation, then 1 food once there is no saturation left.
+            FoodStats s = player.getFoodStats();
+            NBTTagCompound nbt = new NBTTagCompound();
+            s.writeNBT(nbt);
+            int foodLevel = nbt.getInteger("foodLevel");
+            float foodSaturationLevel = nbt.getFloat("foodSaturationLevel");
+            float foodExhaustionLevel = nbt.getFloat("foodExhaustionLevel");
+
+            float newExhaustion = (foodExhaustionLevel + exhaustionTaken) % 4;
+            float newSaturation = foodSaturationLevel - (float)((int)((foodExhaustionLevel + exhaustionTaken) / 4));
+            int newFoodLevel = foodLevel;
+            if(newSaturation < 0) {
+                newFoodLevel += newSaturation;
+                newSaturation = 0;
+            }
+            nbt.setInteger("foodLevel", newFoodLevel);
+            nbt.setFloat("foodSaturationLevel", newSaturation);
+            nbt.setFloat("foodExhaustionLevel", newExhaustion);
+            s.readNBT(nbt);
+        }
+
+        if(experienceTaken > 0) {
+            int newExp = ExpCalculator.getExp(player.experienceLevel, player.experience) - experienceTaken;
+            if(newExp <= 0) {
+                player.experience = 0;
+                player.experienceLevel = 0;
+                player.experienceTotal = 0;
+            }
+            else {
+                player.experienceLevel = ExpCalculator.getLevel(newExp);
+                player.experience = ExpCalculator.getExpBar(newExp);
+                player.experienceTotal = Math.max(0, player.experienceTotal - experienceTaken);
+            }
+            // Makes the server send the new experience to the client.
+            player.addExperienceLevel(0);
+        }
+    }
+}
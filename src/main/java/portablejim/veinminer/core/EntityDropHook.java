@@ -18,19 +18,19 @@
 package portablejim.veinminer.core;
 
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
-import cpw.mods.fml.common.registry.GameRegistry;
-import cpw.mods.fml.common.registry.GameRegistry.UniqueIdentifier;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.item.EntityItem;
+import net.minecraft.entity.item.EntityXPOrb;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.entity.EntityJoinWorldEvent;
 import portablejim.veinminer.server.MinerServer;
-import portablejim.veinminer.api.Point;
 
 /**
  * Hooks into the entity that are dropped into the world to stop entities that
  * are dropped from the VeinMiner process from being dropped normally, instead
- * adding it to VeinMiner's entity drops.
+ * adding it to VeinMiner's entity drops. Most drops are collected earlier by
+ * CoreEvents.collectDrops(), so this only catches items that blocks spawn
+ * themselves.
  */
 
 public class EntityDropHook {
@@ -47,6 +47,12 @@ public class EntityDropHook {
     @SuppressWarnings("UnusedDeclaration")
     @SubscribeEvent
     public void tryAddEntity(EntityJoinWorldEvent event) {
+        // Nothing is being harvested on this thread, so this entity can't be a drop.
+        HarvestContext context = HarvestContext.get();
+        if(minerServer == null || !context.isActive()) {
+            return;
+        }
+
         Entity entity = event.entity;
 
         if(event.world.isRemote) {
@@ -57,57 +63,33 @@ public class EntityDropHook {
             return;
         }
 
-        if(minerServer == null) {
-            return;
-        }
-
         int entityX = (int)Math.floor(entity.posX);
         int entityY = (int)Math.floor(entity.posY);
         int entityZ = (int)Math.floor(entity.posZ);
 
         // Only return for what we are waiting for.
-        if(!minerServer.awaitingDrop(new Point(entityX, entityY, entityZ))) {
+        if(!context.isHarvesting(event.world, entityX, entityY, entityZ)) {
             return;
         }
 
-        if(!(EntityItem.class == entity.getClass())) {
-            return;
-        }
-
-        EntityItem entityItem = (EntityItem) entity;
-
-        if(entityItem.getDataWatcher().getWatchableObjectItemStack(10) == null) {
+        if(EntityXPOrb.class == entity.getClass()) {
+            context.addExperience(((EntityXPOrb) entity).getXpValue());
+            event.setCanceled(true);
             return;
         }
 
-        if(entityItem.getEntityItem().hasTagCompound()) {
+        if(!(EntityItem.class == entity.getClass())) {
             return;
         }
 
-        boolean isBlock;
-        boolean isItem;
-
-        UniqueIdentifier uniqueId = GameRegistry.findUniqueIdentifierFor(entityItem.getEntityItem().getItem());
+        EntityItem entityItem = (EntityItem) entity;
 
-        if(uniqueId == null) {
+        if(entityItem.getDataWatcher().getWatchableObjectItemStack(10) == null) {
             return;
         }
 
-        isBlock = GameRegistry.findBlock(uniqueId.modId, uniqueId.name) != null;
-        isItem = GameRegistry.findItem(uniqueId.modId, uniqueId.name) != null;
-
-        StackTraceElement[] stackTrace = (new Throwable()).getStackTrace();
-        boolean veinminerMethod = false;
-        for(StackTraceElement element : stackTrace) {
-            if(MinerInstance.class.getCanonicalName().equals(element.getClassName()) && "mineBlock".equals(element.getMethodName())) {
-                veinminerMethod = true;
-                break;
-            }
-        }
-
-        //new MinerServer();
-        if((isBlock || isItem) && veinminerMethod) {
-            minerServer.addEntity(entity);
+        if(MinerInstance.canCollectDrop(entityItem.getEntityItem())) {
+            context.getInstance().addDrop(entityItem);
             event.setCanceled(true);
         }
     }
@@ -0,0 +1,92 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.core;
+
+import net.minecraft.world.World;
+
+/**
+ * The block that a MinerInstance is harvesting on the current thread. Events
+ * fired while the block is being harvested (block breaks, drops) use it to
+ * tell that they come from VeinMiner and which instance they belong to.
+ */
+
+final class HarvestContext {
+    private static final ThreadLocal<HarvestContext> CONTEXT = new ThreadLocal<HarvestContext>() {
+        @Override
+        protected HarvestContext initialValue() {
+            return new HarvestContext();
+        }
+    };
+
+    private MinerInstance instance;
+    private World world;
+    private int x;
+    private int y;
+    private int z;
+    private int experience;
+
+    private HarvestContext() {
+    }
+
+    /**
+     * Gets the context for the current thread. The returned object is reused
+     * for every harvest on the thread, so it should not be kept.
+     */
+    static HarvestContext get() {
+        return CONTEXT.get();
+    }
+
+    void begin(MinerInstance instance, World world, int x, int y, int z) {
+        this.instance = instance;
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        experience = 0;
+    }
+
+    void end() {
+        instance = null;
+        world = null;
+    }
+
+    boolean isActive() {
+        return instance != null;
+    }
+
+    MinerInstance getInstance() {
+        return instance;
+    }
+
+    /**
+     * Experience the block will drop if it is harvested. It is held here
+     * until the harvest is known to have succeeded.
+     */
+    int getExperience() {
+        return experience;
+    }
+
+    void addExperience(int amount) {
+        experience += amount;
+    }
+
+    boolean isHarvesting(World world, int x, int y, int z) {
+        return instance != null && this.world == world && this.x == x && this.y == y && this.z == z;
+    }
+}
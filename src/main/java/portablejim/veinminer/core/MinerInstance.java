@@ -17,19 +17,15 @@
 
 package portablejim.veinminer.core;
 
-import cpw.mods.fml.common.FMLCommonHandler;
-import cpw.mods.fml.common.eventhandler.SubscribeEvent;
-import cpw.mods.fml.common.gameevent.TickEvent.ServerTickEvent;
-import cpw.mods.fml.common.registry.GameRegistry;
 import net.minecraft.block.Block;
 import net.minecraft.entity.item.EntityItem;
+import net.minecraft.entity.item.EntityXPOrb;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.init.Blocks;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
-import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.ChatComponentText;
 import net.minecraft.util.ChatComponentTranslation;
-import net.minecraft.util.FoodStats;
 import net.minecraft.util.StatCollector;
 import net.minecraft.world.World;
 import net.minecraftforge.common.MinecraftForge;
@@ -37,23 +33,31 @@ import portablejim.veinminer.api.Permission;
 import portablejim.veinminer.api.VeinminerHarvestFailedCheck;
 import portablejim.veinminer.api.VeinminerNoToolCheck;
 import portablejim.veinminer.api.VeinminerPostUseTool;
+import portablejim.veinminer.api.VeinminerPostUseToolBatch;
+import portablejim.veinminer.api.VeinminerPostUseToolBatch.Outcome;
 import portablejim.veinminer.configuration.ConfigurationSettings;
-import portablejim.veinminer.lib.BlockLib;
+import portablejim.veinminer.lib.EventLib;
 import portablejim.veinminer.lib.MinerLogger;
 import portablejim.veinminer.server.MinerServer;
 import portablejim.veinminer.util.BlockID;
-import portablejim.veinminer.util.ExpCalculator;
+import portablejim.veinminer.util.ChunkStateReader;
 import portablejim.veinminer.util.ItemStackID;
+import portablejim.veinminer.util.LongHashSet;
+import portablejim.veinminer.util.LongFrontier;
+import portablejim.veinminer.util.LongQueue;
 import portablejim.veinminer.util.PlayerStatus;
 import portablejim.veinminer.api.Point;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import static net.minecraftforge.event.entity.player.PlayerEvent.HarvestCheck;
 
@@ -64,58 +68,190 @@ import static net.minecraftforge.event.entity.player.PlayerEvent.HarvestCheck;
 
 public class MinerInstance {
     public MinerServer serverInstance;
-    private HashSet<Point> startBlacklist;
-    private ConcurrentLinkedQueue<Point> destroyQueue;
-    private HashSet<Point> awaitingEntityDrop;
+    /*
+     * Points are stored packed into longs (see Point.toLong()) to avoid
+     * allocating objects for every block tested.
+     */
+    private TraversalStrategy traversal;
+    private LongFrontier destroyQueue;
+    private ChunkStateReader stateReader;
+    /**
+     * Blocks found by a VeinPlanner on another thread, which are mined
+     * before anything in destroyQueue. plan is null if no planner is
+     * running. A planned block is only mined if it is next to a block the
+     * vein has continued from, so the vein still stops at blocks that
+     * couldn't be mined. Planned blocks skipped for that reason are queued
+     * again if the vein later continues from a block next to them.
+     */
+    private Future<VeinPlanner.Plan> plan;
+    private LongQueue plannedPoints;
+    private LongHashSet continuedPoints;
+    private LongHashSet skippedPlannedPoints;
+    /**
+     * Points in chunks that weren't loaded when they were reached, kept
+     * until deferredUntil (world time) in case their chunk is loaded.
+     */
+    private LongQueue deferredPoints;
+    private long deferredUntil;
+    /**
+     * Keeps the chunks with queued or planned points loaded. Null if chunks
+     * aren't kept loaded.
+     */
+    private ChunkKeeper chunkKeeper;
+    /**
+     * Every point that has been queued or tested during this vein, so that
+     * each point is only ever tested once.
+     */
+    private LongHashSet visitedPoints;
     private LinkedHashMap<ItemStackID, Integer> drops;
+    /**
+     * Number of items in drops, and the world time they were last dropped,
+     * for dropping them before the vein is finished.
+     */
+    private int numDropItems;
+    private long lastDropTime;
+    /**
+     * Whether some of the drops due to be dropped were left for the next
+     * tick.
+     */
+    private boolean dropsPending;
+    /**
+     * Experience from the blocks mined, given out with the drops instead of
+     * an orb being spawned for every block.
+     */
+    private int dropExperience;
+    private CostLedger costs;
+    /**
+     * Result of the last tool and player status check, with the tick and
+     * the equipped item it was checked for.
+     */
+    private long playerCheckTick;
+    private ItemStack playerCheckItem;
+    private boolean playerCheckResult;
+    /**
+     * Which events have listeners, and the blocks mined this tick (packed)
+     * for VeinminerPostUseToolBatch (null if nothing listens for it). Worked
+     * out when the first block of the tick is mined.
+     */
+    private boolean batchStarted;
+    private boolean postUseToolListeners;
+    private boolean harvestFailedListeners;
+    private LongQueue batchPoints;
+    private ArrayList<Outcome> batchOutcomes;
+
+    /*
+     * Events used to find the listeners of each event type.
+     */
+    private static final VeinminerPostUseTool POST_USE_TOOL_EVENT = new VeinminerPostUseTool(null, null);
+    private static final VeinminerHarvestFailedCheck HARVEST_FAILED_EVENT = new VeinminerHarvestFailedCheck(null, null, null, 0);
+    private static final VeinminerPostUseToolBatch POST_USE_TOOL_BATCH_EVENT = new VeinminerPostUseToolBatch(null, null, null);
     private World world;
     private EntityPlayerMP player;
     private BlockID targetBlock;
+    private int targetState;
+    /**
+     * Block states that can be mined in this vein, worked out when the vein
+     * is started.
+     */
+    private BitSet matchingStates;
     private boolean finished;
+    /**
+     * Whether every block has been mined. The instance stays on the server
+     * until the drops left over have been dropped, then veinFinished is set.
+     */
+    private boolean miningFinished;
+    private boolean veinFinished;
     private ItemStack usedItem;
     private int numBlocksMined;
     private Point initalBlock;
     private int radiusLimit;
     private int blockLimit;
+    private int pointsQueued;
+    private int pointsRevisited;
+    private int pointsDeferred;
+    private int pointsUnloadedSkipped;
+    private long[] neighbourBuffer;
 
     private static final int MIN_HUNGER = 1;
 
     public MinerInstance(World world, EntityPlayerMP player, Point startPoint, BlockID blockID, MinerServer server, int radiusLimit, int blockLimit) {
-        startBlacklist = new HashSet<Point>();
-        destroyQueue = new ConcurrentLinkedQueue<Point>();
-        awaitingEntityDrop = new HashSet<Point>();
+        visitedPoints = new LongHashSet();
         drops = new LinkedHashMap<ItemStackID, Integer>();
         this.world = world;
+        numDropItems = 0;
+        dropsPending = false;
+        lastDropTime = world.getTotalWorldTime();
+        dropExperience = 0;
+        costs = new CostLedger(player);
+        playerCheckTick = -1;
+        batchStarted = false;
         this.player = player;
         targetBlock = blockID;
+        Block block = Block.getBlockFromName(blockID.name);
+        targetState = block != null ? BlockID.getStateId(block, blockID.metadata) : -1;
         finished = false;
+        miningFinished = false;
+        veinFinished = false;
         serverInstance = server;
         usedItem = player.getCurrentEquippedItem();
         numBlocksMined = 1;
         initalBlock = startPoint;
         this.radiusLimit = radiusLimit;
         this.blockLimit = blockLimit;
+        pointsQueued = 0;
+        pointsRevisited = 0;
+        pointsDeferred = 0;
+        pointsUnloadedSkipped = 0;
+        deferredPoints = new LongQueue();
+        deferredUntil = 0;
+        matchingStates = getMatchingStates();
+        traversal = getTraversal();
+        destroyQueue = traversal.createFrontier(startPoint);
+        stateReader = new ChunkStateReader(world);
+        neighbourBuffer = new long[26];
+
+        int keepLoadedChunks = server.getConfigurationSettings().getKeepLoadedChunks();
+        if(keepLoadedChunks > 0) {
+            chunkKeeper = new ChunkKeeper(world, startPoint, keepLoadedChunks);
+        }
 
-        serverInstance.addInstance(this);
+        int plannerChunkRadius = server.getConfigurationSettings().getPlannerChunkRadius();
+        if(plannerChunkRadius > 0) {
+            plan = server.submitPlanner(new VeinPlanner(world, startPoint, plannerChunkRadius, traversal, matchingStates, radiusLimit, blockLimit));
+            continuedPoints = new LongHashSet();
+        }
 
-        FMLCommonHandler.instance().bus().register(this);
+        serverInstance.addInstance(this);
     }
 
-    public void cleanUp() {
-        FMLCommonHandler.instance().bus().unregister(this);
+    /**
+     * Checks the tool and the player's status. These are only checked once
+     * per tick, or again if the player changes the item they are holding.
+     */
+    private boolean playerCanContinue() {
+        ItemStack equippedItem = player.getCurrentEquippedItem();
+        long tick = world.getTotalWorldTime();
+        if(tick != playerCheckTick || equippedItem != playerCheckItem) {
+            playerCheckTick = tick;
+            playerCheckItem = equippedItem;
+            playerCheckResult = checkPlayer(equippedItem);
+        }
+        return playerCheckResult;
     }
 
-    private boolean shouldContinue() {
+    private boolean checkPlayer(ItemStack equippedItem) {
+        boolean allowed = true;
+
         // Item equipped
-        if(!serverInstance.getConfigurationSettings().getEnableAllTools() && player.getCurrentEquippedItem() == null) {
+        if(!serverInstance.getConfigurationSettings().getEnableAllTools() && equippedItem == null) {
             VeinminerNoToolCheck toolCheck = new VeinminerNoToolCheck(player);
             MinecraftForge.EVENT_BUS.post(toolCheck);
 
             if(toolCheck.allowTool.isAllowed() || player.theItemInWorldManager.isCreative()) {
-                this.finished = false;
+                allowed = true;
             }
             else if(toolCheck.allowTool == Permission.FORCE_DENY) {
-                this.finished = true;
+                allowed = false;
             }
             else {
                 // Test to see if the player can mine stone.
@@ -124,28 +260,36 @@ public class MinerInstance {
                 Block testBlock = Blocks.stone;
                 HarvestCheck event = new HarvestCheck(player, testBlock, false);
                 MinecraftForge.EVENT_BUS.post(event);
-                this.finished = !event.success;
+                allowed = event.success;
             }
         }
 
         if(usedItem == null) {
-            if(player.getCurrentEquippedItem() != null) {
-                this.finished = true;
+            if(equippedItem != null) {
+                allowed = false;
             }
         }
-        else if(player.getCurrentEquippedItem() == null || !player.getCurrentEquippedItem().isItemEqual(usedItem)) {
-            this.finished = true;
+        else if(equippedItem == null || !equippedItem.isItemEqual(usedItem)) {
+            allowed = false;
         }
 
         // Player exists and is in correct status (correct button held)
         UUID playerName = player.getUniqueID();
         PlayerStatus playerStatus = serverInstance.getPlayerStatus(playerName);
         if(playerStatus == null) {
-            this.finished = true;
+            allowed = false;
         }
         else if(playerStatus == PlayerStatus.INACTIVE ||
                 (playerStatus == PlayerStatus.SNEAK_ACTIVE && !player.isSneaking()) ||
                 (playerStatus == PlayerStatus.SNEAK_INACTIVE && player.isSneaking())) {
+            allowed = false;
+        }
+
+        return allowed;
+    }
+
+    private boolean shouldContinue() {
+        if(!playerCanContinue()) {
             this.finished = true;
         }
 
@@ -154,8 +298,7 @@ public class MinerInstance {
         }
 
         // Not hungry
-        FoodStats food = player.getFoodStats();
-        if(food.getFoodLevel() < MIN_HUNGER) {
+        if(costs.getFoodLevel() < MIN_HUNGER) {
             this.finished = true;
 
             String problem = "mod.veinminer.finished.tooHungry";
@@ -170,7 +313,7 @@ public class MinerInstance {
 
         // Experience
         int experienceMod = serverInstance.getConfigurationSettings().getExperienceMultiplier();
-        if(experienceMod > 0 && ExpCalculator.getExp(player.experienceLevel, player.experience) < experienceMod) {
+        if(experienceMod > 0 && costs.getExperience() < experienceMod) {
             this.finished = true;
 
             String problem = "mod.veinminer.finished.noExp";
@@ -199,87 +342,181 @@ public class MinerInstance {
         return !this.finished;
     }
 
-    private boolean toolAllowedForBlock(ItemStack tool, BlockID block) {
-        boolean toolAllowed = false;
+    /**
+     * Works out every block state that should be mined along with the
+     * target block using the used tool.
+     * @return Set of block state ids to mine.
+     */
+    private BitSet getMatchingStates() {
+        BitSet states = new BitSet(BlockID.NUM_STATE_IDS);
+        if(targetState == -1) {
+            return states;
+        }
         ConfigurationSettings settings = serverInstance.getConfigurationSettings();
-        for(String type : settings.getToolTypeNames()) {
-            if(settings.toolIsOfType(tool, type)) {
-                if(serverInstance.getConfigurationSettings().whiteListHasBlockId(type, block)) {
-                    toolAllowed = true;
+
+        states.set(targetState);
+
+        BitSet congruentStates = settings.getCongruentBlockStates(targetState);
+        if(congruentStates != null) {
+            states.or(congruentStates);
+        }
+
+        // Blocks that have the same pick block.
+        Block block = BlockID.getBlock(targetState);
+        int firstState = BlockID.getStateId(block, 0);
+        try {
+            int targetDropped = block.damageDropped(BlockID.getMetadata(targetState));
+            for(int meta = 0; meta < BlockID.NUM_METADATA; meta++) {
+                if(block.damageDropped(meta) == targetDropped) {
+                    states.set(firstState + meta);
+                }
+            }
+        }
+        catch (RuntimeException e) {
+            // Some blocks do not handle metadata values they do not use.
+            MinerLogger.debug("Error getting dropped metadata for %s: %s", targetBlock.toString(), e.toString());
+        }
+
+        if(!settings.getEnableAllBlocks()) {
+            BitSet allowedStates = new BitSet(BlockID.NUM_STATE_IDS);
+            for(String type : settings.getToolTypeNames()) {
+                if(settings.toolIsOfType(usedItem, type)) {
+                    allowedStates.or(settings.getWhiteListBlockStates(type));
                 }
             }
+            states.and(allowedStates);
         }
-        return toolAllowed;
+
+        return states;
     }
 
-    private void takeHunger() {
-        float hungerMod = ((float) serverInstance.getConfigurationSettings().getHungerMultiplier()) * 0.025F;
-        FoodStats s = player.getFoodStats();
-        NBTTagCompound nbt = new NBTTagCompound();
-        s.writeNBT(nbt);
-        int foodLevel = nbt.getInteger("foodLevel");
-        int foodTimer = nbt.getInteger("foodTickTimer");
-        float foodSaturationLevel = nbt.getFloat("foodSaturationLevel");
-        float foodExhaustionLevel = nbt.getFloat("foodExhaustionLevel");
+    /**
+     * Gets the traversal set for a tool type that the used tool is and that
+     * can mine the target block. If there is more than one, the first by
+     * tool type name is used.
+     */
+    private TraversalStrategy getTraversal() {
+        ConfigurationSettings settings = serverInstance.getConfigurationSettings();
+        List<String> toolTypes = new ArrayList<String>(settings.getToolTypeNames());
+        Collections.sort(toolTypes);
+        for(String type : toolTypes) {
+            String traversalName = settings.getToolTypeTraversal(type);
+            if(traversalName.isEmpty() || !settings.toolIsOfType(usedItem, type)) {
+                continue;
+            }
+            if(!settings.getEnableAllBlocks() && (targetState == -1 || !settings.whiteListHasBlockState(type, targetState))) {
+                continue;
+            }
 
-        float newExhaustion = (foodExhaustionLevel + hungerMod) % 4;
-        float newSaturation = foodSaturationLevel - (float)((int)((foodExhaustionLevel + hungerMod) / 4));
-        int newFoodLevel = foodLevel;
-        if(newSaturation < 0) {
-            newFoodLevel += newSaturation;
-            newSaturation = 0;
+            Traversal traversal = Traversal.fromConfigName(traversalName);
+            if(traversal != null) {
+                return traversal;
+            }
+            MinerLogger.debug("Unknown traversal '%s' for tool type %s. Using default.", traversalName, type);
         }
-        nbt.setInteger("foodLevel", newFoodLevel);
-        nbt.setInteger("foodTickTimer", foodTimer);
-        nbt.setFloat("foodSaturationLevel", newSaturation);
-        nbt.setFloat("foodExhaustionLevel", newExhaustion);
+        return Traversal.DEFAULT;
+    }
 
-        s.readNBT(nbt);
+    private void takeHunger() {
+        float hungerMod = ((float) serverInstance.getConfigurationSettings().getHungerMultiplier()) * 0.025F;
+        costs.takeHunger(hungerMod);
     }
 
     private void takeExperience() {
-        int targetLevel = player.experienceLevel;
         int expToTakeAway = serverInstance.getConfigurationSettings().getExperienceMultiplier();
 
         if(expToTakeAway == 0) {
             return;
         }
 
-        if(expToTakeAway > player.experience * player.xpBarCap()) {
-            int newExp = ExpCalculator.getExp(player.experienceLevel, player.experience) - expToTakeAway;
-            while(ExpCalculator.getExp(targetLevel, 0) > newExp)
-                targetLevel--;
-            player.experienceLevel = targetLevel < 0 ? 0 : targetLevel;
-            //expToTakeAway -= ExpCalculator.getExp(targetLevel, 0);
-            int newExpTotal = newExp - ExpCalculator.getExp(targetLevel, 0);
-            player.experience = Math.max(0, Math.min(1, (float)newExpTotal / player.xpBarCap()));
-            player.experienceTotal = Math.max(0, newExpTotal);
-            if(newExp <= 0) {
-                player.experience = 0;
-                player.experienceLevel = 0;
-                player.experienceTotal = 0;
+        costs.takeExperience(expToTakeAway);
+    }
+
+    /**
+     * Checks which of the per block events have listeners, once per tick as
+     * listeners are hardly ever added while the game is running.
+     */
+    private void startBatch() {
+        postUseToolListeners = EventLib.hasListeners(POST_USE_TOOL_EVENT);
+        harvestFailedListeners = EventLib.hasListeners(HARVEST_FAILED_EVENT);
+        if(!EventLib.hasListeners(POST_USE_TOOL_BATCH_EVENT)) {
+            batchPoints = null;
+            batchOutcomes = null;
+        }
+        else if(batchPoints == null) {
+            batchPoints = new LongQueue();
+            batchOutcomes = new ArrayList<Outcome>();
+        }
+        batchStarted = true;
+    }
+
+    /**
+     * Takes the hunger and experience used by the blocks mined this tick
+     * from the player, drops some of the drops if they are due and posts the
+     * blocks mined in a VeinminerPostUseToolBatch. Called by MinerServer at
+     * the end of every tick.
+     */
+    public void finishTick() {
+        costs.apply();
+        stateReader.clear();
+
+        // Drops are spread over ticks, including the ones left when the vein is finished.
+        if(miningFinished || dropsDue()) {
+            boolean allDropped = spawnDrops(serverInstance.getConfigurationSettings().getDropFlushStacks());
+            dropsPending = !allDropped;
+            if(miningFinished && allDropped && !veinFinished) {
+                finishVein();
             }
         }
-        else {
-            player.addExperience(-expToTakeAway);
+
+        if(batchPoints != null && !batchPoints.isEmpty()) {
+            Point[] points = new Point[batchPoints.size()];
+            for(int i = 0; i < points.length; i++) {
+                points[i] = Point.fromLong(batchPoints.remove());
+            }
+            Outcome[] outcomes = batchOutcomes.toArray(new Outcome[batchOutcomes.size()]);
+            MinecraftForge.EVENT_BUS.post(new VeinminerPostUseToolBatch(player, points, outcomes));
+        }
+        if(batchPoints != null) {
+            batchPoints.clear();
+            batchOutcomes.clear();
         }
-        player.addExperienceLevel(0);
+        batchStarted = false;
     }
 
     public  int mineBlock(Point point) {
         return mineBlock(point.getX(), point.getY(), point.getZ());
     }
 
+    private int mineBlock(long packedPoint) {
+        return mineBlock(Point.unpackX(packedPoint), Point.unpackY(packedPoint), Point.unpackZ(packedPoint));
+    }
+
     private int mineBlock(int x, int y, int z) {
         int mineSuccessful = 0;
-        Point newPoint = new Point(x, y, z);
-        BlockID newBlock = new BlockID(world, x , y, z );
-        ConfigurationSettings configurationSettings = serverInstance.getConfigurationSettings();
-        startBlacklist.add(newPoint);
-        if(mineAllowed(newBlock, newPoint, configurationSettings)) {
+        long packedPoint = Point.toLong(x, y, z);
+        int newBlock = stateReader.getStateId(x, y, z);
+        visitedPoints.add(packedPoint);
+        if(newBlock == ChunkStateReader.UNLOADED) {
+            // Loading or generating a chunk takes far too long, so never do it for a vein.
+            skipUnloadedPoint(packedPoint);
+            return mineSuccessful;
+        }
+        if(mineAllowed(newBlock, x, y, z)) {
             mineSuccessful = mineSuccessful | 1;
-            awaitingEntityDrop.add(newPoint);
-            boolean success = player.theItemInWorldManager.tryHarvestBlock(x, y, z);
+            // Lets the break and drop events fired by the harvest know that they come from this instance.
+            HarvestContext context = HarvestContext.get();
+            context.begin(this, world, x, y, z);
+            boolean success;
+            try {
+                success = player.theItemInWorldManager.tryHarvestBlock(x, y, z);
+                if(success) {
+                    dropExperience += context.getExperience();
+                }
+            }
+            finally {
+                context.end();
+            }
             numBlocksMined++;
 
             if(!player.capabilities.isCreativeMode) {
@@ -287,18 +524,40 @@ public class MinerInstance {
                 takeExperience();
             }
 
-            VeinminerPostUseTool toolUsedEvent = new VeinminerPostUseTool(player, newPoint);
-            MinecraftForge.EVENT_BUS.post(toolUsedEvent);
+            if(!batchStarted) {
+                startBatch();
+            }
+
+            // Only allocated for the events, which are only posted if something listens for them.
+            Point newPoint = null;
+            if(postUseToolListeners) {
+                newPoint = new Point(x, y, z);
+                VeinminerPostUseTool toolUsedEvent = new VeinminerPostUseTool(player, newPoint);
+                MinecraftForge.EVENT_BUS.post(toolUsedEvent);
+            }
 
             // Only go ahead if block was destroyed. Stops mining through protected areas.
-            VeinminerHarvestFailedCheck continueCheck = new VeinminerHarvestFailedCheck(player, newPoint, targetBlock.name, targetBlock.metadata);
-            MinecraftForge.EVENT_BUS.post(continueCheck);
-            if (success || continueCheck.allowContinue.isAllowed()) {
+            boolean allowContinue = success;
+            if(!success && harvestFailedListeners) {
+                if(newPoint == null) {
+                    newPoint = new Point(x, y, z);
+                }
+                VeinminerHarvestFailedCheck continueCheck = new VeinminerHarvestFailedCheck(player, newPoint, targetBlock.name, targetBlock.metadata);
+                MinecraftForge.EVENT_BUS.post(continueCheck);
+                allowContinue = continueCheck.allowContinue.isAllowed();
+            }
+
+            if(batchPoints != null) {
+                batchPoints.add(packedPoint);
+                batchOutcomes.add(success ? Outcome.HARVESTED : (allowContinue ? Outcome.CONTINUED : Outcome.FAILED));
+            }
+
+            if (allowContinue) {
                 mineSuccessful = mineSuccessful | 2;
-                postSuccessfulBreak(newPoint);
-                awaitingEntityDrop.remove(newPoint);
-            } else {
-                awaitingEntityDrop.remove(newPoint);
+                if(continuedPoints != null) {
+                    continuedPoints.add(packedPoint);
+                }
+                postSuccessfulBreak(x, y, z);
             }
         }
 
@@ -307,114 +566,414 @@ public class MinerInstance {
 
 
     public void postSuccessfulBreak(Point breakPoint) {
-        ArrayList<Point> surrondingPoints = getPoints(breakPoint);
-        destroyQueue.addAll(surrondingPoints);
-    }
-
-    private ArrayList<Point> getPoints(Point origin) {
-        ArrayList<Point> points = new ArrayList<Point>(9);
-        int dimRange[] = {-1, 0, 1};
-        for(int dx : dimRange) {
-            for(int dy : dimRange) {
-                for(int dz : dimRange) {
-                    if(dx == 0 && dy == 0 && dz == 0) {
-                        // If 0, 0, 0
-                        continue;
-                    }
-                    points.add(new Point(origin.getX() + dx, origin.getY() + dy, origin.getZ() + dz));
-                }
+        postSuccessfulBreak(breakPoint.getX(), breakPoint.getY(), breakPoint.getZ());
+    }
+
+    private void postSuccessfulBreak(int x, int y, int z) {
+        long[] surrondingPoints = neighbourBuffer;
+        int numPoints = traversal.getNeighbours(x, y, z, surrondingPoints);
+        for(int i = 0; i < numPoints; i++) {
+            long surroundingPoint = surrondingPoints[i];
+            // Skip points that have already been queued or tested.
+            if(visitedPoints.add(surroundingPoint)) {
+                queuePoint(surroundingPoint);
+                pointsQueued++;
+            }
+            else if(skippedPlannedPoints != null && skippedPlannedPoints.remove(surroundingPoint)) {
+                // Now next to a block the vein continued from.
+                queuePoint(surroundingPoint);
+                pointsQueued++;
+            }
+            else {
+                pointsRevisited++;
             }
         }
-        Collections.shuffle(points);
-        return points;
     }
 
-    private boolean mineAllowed(BlockID newBlock, Point newBlockPos, ConfigurationSettings configSettings) {
+    private boolean mineAllowed(int newBlock, int x, int y, int z) {
         if(finished || !shouldContinue()) return false;
-        // Ensure valid block
-        if (Block.getBlockFromName(newBlock.name) == null) {
-            return false;
-        }
-        if (!newBlock.wildcardEquals(targetBlock) && !configSettings.areBlocksCongruent(newBlock, targetBlock)
-                && !BlockLib.arePickBlockEqual(newBlock, targetBlock)) {
+        // Matching block that the tool can mine.
+        if (!matchingStates.get(newBlock)) {
             return false;
         }
-        if (!newBlockPos.isWithinRange(initalBlock, radiusLimit) && radiusLimit > 0) {
-            MinerLogger.debug("Initial block: %d,%d,%d; New block: %d,%d,%d; Radius: %.2f; Raidus limit: %d.", initalBlock.getX(), initalBlock.getY(), initalBlock.getZ(), newBlockPos.getX(), newBlockPos.getY(), newBlockPos.getZ(), Math.sqrt(initalBlock.distanceFrom(newBlockPos)), radiusLimit);
+        if (radiusLimit > 0 && !initalBlock.isWithinRange(x, y, z, radiusLimit)) {
+            MinerLogger.debug("Initial block: %d,%d,%d; New block: %d,%d,%d; Radius: %.2f; Raidus limit: %d.", initalBlock.getX(), initalBlock.getY(), initalBlock.getZ(), x, y, z, Math.sqrt(initalBlock.distanceFrom(x, y, z)), radiusLimit);
             return false;
         }
-        // Block already scheduled.
-        if (awaitingEntityDrop.contains(newBlockPos))
-            return false;
         //noinspection SimplifiableIfStatement
         if (numBlocksMined >= blockLimit && blockLimit != -1) {
             MinerLogger.debug("Block limit is: %d; Blocks mined: %d", blockLimit, numBlocksMined);
             return false;
         }
-        // Seem to get wrong result if inlined. ??!??!
-        //noinspection UnnecessaryLocalVariable
-        boolean result =  (configSettings.getEnableAllBlocks() || toolAllowedForBlock(usedItem, newBlock));
-        return result;
+        return true;
     }
 
 
-    @SuppressWarnings({"UnusedParameters", "UnusedDeclaration"})
-    @SubscribeEvent
-    public void mineScheduled(ServerTickEvent event) {
-        int quantity = serverInstance.getConfigurationSettings().getBlocksPerTick();
+    /**
+     * Mines the next blocks in the queue. Called once per server tick by
+     * MinerServer while this instance is active. At least one block is mined
+     * each call, even when the deadline has passed, unless the vein is
+     * still being planned or every block has already been mined.
+     * @param quantity Maximum number of blocks to mine.
+     * @param deadline Time (from System.nanoTime()) to stop mining at.
+     * @return Number of blocks mined.
+     */
+    public int mineScheduled(int quantity, long deadline) {
+        if(miningFinished) {
+            // Only waiting for the drops to be dropped.
+            return 0;
+        }
+        if(plan != null) {
+            if(!plan.isDone()) {
+                return 0;
+            }
+            usePlan();
+        }
+
         int i = 0;
-        while(i < quantity) {
-            if(!destroyQueue.isEmpty()) {
-                Point target = destroyQueue.remove();
-                if((mineBlock(target.getX(), target.getY(), target.getZ()) & 2) == 2) {
+        while(i < quantity && (i == 0 || deadline == Long.MAX_VALUE || System.nanoTime() < deadline)) {
+            if(plannedPoints != null && !plannedPoints.isEmpty()) {
+                long target = plannedPoints.remove();
+                if(finished) {
+                    plannedPoints.clear();
+                    if(chunkKeeper != null) {
+                        // Nothing else will be mined.
+                        chunkKeeper.release();
+                    }
+                }
+                else {
+                    if(!nextToContinuedPoint(target)) {
+                        skippedPlannedPoints.add(target);
+                    }
+                    else if((mineBlock(target) & 2) == 2) {
+                        i += 1;
+                    }
+                    // Only after mining, so the chunk isn't let go just before the next points in it are queued.
+                    unqueuePoint(target);
+                }
+            }
+            else if(!destroyQueue.isEmpty()) {
+                long target = destroyQueue.remove();
+                if((mineBlock(target) & 2) == 2) {
                     i += 1;
                 }
+                unqueuePoint(target);
+            }
+            else if(!finished && !deferredPoints.isEmpty() && world.getTotalWorldTime() < deferredUntil) {
+                // Wait for the chunks of the deferred points to be loaded.
+                if(!requeueLoadedPoints()) {
+                    break;
+                }
             }
             else {
                 // All blocks have been mined. This is done last.
-                serverInstance.removeInstance(this);
-                if(!drops.isEmpty()) {
-                    spawnDrops();
+                pointsUnloadedSkipped += deferredPoints.size();
+                deferredPoints.clear();
+                if(chunkKeeper != null) {
+                    chunkKeeper.release();
+                }
+                logVeinStatistics();
+                miningFinished = true;
+                if(drops.isEmpty() && dropExperience == 0) {
+                    finishVein();
                 }
-                cleanUp();
-                return;
+                return i;
             }
         }
+        return i;
     }
 
-    private void spawnDrops() {
-        for(Map.Entry<ItemStackID, Integer> schedDrop : drops.entrySet()) {
-            ItemStackID itemStack = schedDrop.getKey();
-            String[] itemNames = itemStack.getItemId().split(":", 2);
+    private void finishVein() {
+        serverInstance.removeInstance(this);
+        veinFinished = true;
+    }
 
-            if(itemNames.length < 2 || GameRegistry.findItemStack(itemNames[0], itemNames[1], 1) == null) {
-                continue;
+    /**
+     * Takes the blocks found by the planner. Points the planner checked are
+     * marked as visited, so only points next to the vein that the planner
+     * couldn't check are queued while mining. If planning failed the vein
+     * is mined without a plan.
+     */
+    private void usePlan() {
+        Future<VeinPlanner.Plan> finishedPlan = plan;
+        plan = null;
+        VeinPlanner.Plan result;
+        try {
+            result = finishedPlan.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        catch (ExecutionException e) {
+            MinerLogger.debug("Planning vein failed, mining without a plan: %s", e.getCause());
+            return;
+        }
+
+        long[] testedPoints = result.testedPoints.toArray();
+        for(long testedPoint : testedPoints) {
+            visitedPoints.add(testedPoint);
+        }
+
+        // Drop points queued by the first block that are in the plan.
+        long[] queuedPoints = new long[destroyQueue.size()];
+        for(int i = 0; i < queuedPoints.length; i++) {
+            queuedPoints[i] = destroyQueue.remove();
+        }
+        for(long queuedPoint : queuedPoints) {
+            if(!result.testedPoints.contains(queuedPoint)) {
+                destroyQueue.add(queuedPoint);
+            }
+            else {
+                unqueuePoint(queuedPoint);
+            }
+        }
+
+        plannedPoints = result.points;
+        skippedPlannedPoints = new LongHashSet();
+        if(chunkKeeper != null) {
+            for(int i = plannedPoints.size(); i > 0; i--) {
+                long plannedPoint = plannedPoints.remove();
+                chunkKeeper.add(plannedPoint);
+                plannedPoints.add(plannedPoint);
+            }
+        }
+    }
+
+    private void queuePoint(long packedPoint) {
+        destroyQueue.add(packedPoint);
+        if(chunkKeeper != null) {
+            chunkKeeper.add(packedPoint);
+        }
+    }
+
+    /**
+     * Lets the chunk keeper know a queued or planned point has been dealt
+     * with.
+     */
+    private void unqueuePoint(long packedPoint) {
+        if(chunkKeeper != null) {
+            chunkKeeper.remove(packedPoint);
+        }
+    }
+
+    private void skipUnloadedPoint(long packedPoint) {
+        int unloadedChunkWait = serverInstance.getConfigurationSettings().getUnloadedChunkWait();
+        if(unloadedChunkWait > 0 && !finished) {
+            deferredPoints.add(packedPoint);
+            deferredUntil = world.getTotalWorldTime() + unloadedChunkWait;
+            pointsDeferred++;
+        }
+        else {
+            pointsUnloadedSkipped++;
+        }
+    }
+
+    /**
+     * Moves the deferred points in chunks that have been loaded back to the
+     * queue.
+     * @return If any points were moved.
+     */
+    private boolean requeueLoadedPoints() {
+        boolean requeued = false;
+        for(int i = deferredPoints.size(); i > 0; i--) {
+            long deferredPoint = deferredPoints.remove();
+            if(stateReader.isChunkLoaded(Point.unpackX(deferredPoint), Point.unpackZ(deferredPoint))) {
+                queuePoint(deferredPoint);
+                requeued = true;
+            }
+            else {
+                deferredPoints.add(deferredPoint);
+            }
+        }
+        return requeued;
+    }
+
+    private boolean nextToContinuedPoint(long packedPoint) {
+        int numPoints = traversal.getNeighbours(Point.unpackX(packedPoint), Point.unpackY(packedPoint), Point.unpackZ(packedPoint), neighbourBuffer);
+        for(int i = 0; i < numPoints; i++) {
+            if(continuedPoints.contains(neighbourBuffer[i])) {
+                return true;
             }
+        }
+        return false;
+    }
 
+    /**
+     * Checks if the drops collected so far should be dropped before the vein
+     * is finished, which keeps a big vein from dropping everything at once.
+     */
+    private boolean dropsDue() {
+        if(drops.isEmpty() && dropExperience == 0) {
+            return false;
+        }
+        if(dropsPending) {
+            // Carry on with the drops that didn't fit in the last tick.
+            return true;
+        }
+        ConfigurationSettings settings = serverInstance.getConfigurationSettings();
+        int flushItems = settings.getDropFlushItems();
+        int flushInterval = settings.getDropFlushInterval();
+        return (flushItems > 0 && numDropItems >= flushItems)
+                || (flushInterval > 0 && world.getTotalWorldTime() - lastDropTime >= flushInterval);
+    }
+
+    /**
+     * Whether every block in the vein has been mined, everything left has
+     * been dropped and the instance has been removed from the server.
+     */
+    public boolean isVeinFinished() {
+        return veinFinished;
+    }
+
+    private void logVeinStatistics() {
+        int pointsConsidered = pointsQueued + pointsRevisited;
+        float revisitRatio = pointsQueued > 0 ? (float) pointsConsidered / pointsQueued : 0;
+        MinerLogger.debug("Vein finished. Blocks mined: %d; Points queued: %d; Duplicate points skipped: %d; Revisit ratio: %.2f.", numBlocksMined, pointsQueued, pointsRevisited, revisitRatio);
+        if(pointsDeferred > 0 || pointsUnloadedSkipped > 0) {
+            MinerLogger.debug("Points in unloaded chunks deferred: %d; Points in unloaded chunks skipped: %d.", pointsDeferred, pointsUnloadedSkipped);
+        }
+    }
+
+    /**
+     * Whether the drops can go straight to the player. Drops are spilled at
+     * the vein instead if the player has died, logged out or changed world
+     * since the vein was started.
+     */
+    private boolean canReceiveDrops() {
+        return !player.isDead && player.worldObj == world
+                && player.mcServer.getConfigurationManager().playerEntityList.contains(player);
+    }
+
+    /**
+     * Drops the collected items and experience, or puts them in the
+     * player's inventory.
+     * @param maxEntities Most item stacks and experience orbs to spawn. What
+     *                    is left over is kept for the next call.
+     * @return If everything has been dropped.
+     */
+    private boolean spawnDrops(int maxEntities) {
+        boolean toInventory = serverInstance.getConfigurationSettings().getDropsToInventory() && canReceiveDrops();
+        boolean inventoryChanged = false;
+        int entitiesLeft = maxEntities;
+
+        Iterator<Map.Entry<ItemStackID, Integer>> dropIterator = drops.entrySet().iterator();
+        while(dropIterator.hasNext() && entitiesLeft > 0) {
+            Map.Entry<ItemStackID, Integer> schedDrop = dropIterator.next();
+            ItemStackID itemStack = schedDrop.getKey();
             int numItems = schedDrop.getValue();
-            while (numItems > itemStack.getMaxStackSize()) {
-                ItemStack newItemStack = GameRegistry.findItemStack(itemNames[0], itemNames[1], itemStack.getMaxStackSize());
-                newItemStack.setItemDamage(itemStack.getDamage());
+            if(itemStack.getItem() == null) {
+                dropIterator.remove();
+                numDropItems -= numItems;
+                continue;
+            }
+
+            if(toInventory) {
+                int itemsLeft = addToInventory(itemStack, numItems);
+                inventoryChanged |= itemsLeft != numItems;
+                numDropItems -= numItems - itemsLeft;
+                numItems = itemsLeft;
+            }
+
+            // Drop what didn't fit.
+            while (numItems > 0 && entitiesLeft > 0) {
+                ItemStack newItemStack = itemStack.createStack(Math.min(numItems, itemStack.getMaxStackSize()));
                 EntityItem newEntityItem = new EntityItem(world, initalBlock.getX() + 0.5F, initalBlock.getY() + 0.5F, initalBlock.getZ() + 0.5F, newItemStack);
                 world.spawnEntityInWorld(newEntityItem);
-                numItems -= itemStack.getMaxStackSize();
+                numItems -= newItemStack.stackSize;
+                numDropItems -= newItemStack.stackSize;
+                entitiesLeft--;
+            }
+
+            if(numItems > 0) {
+                schedDrop.setValue(numItems);
+            }
+            else {
+                dropIterator.remove();
+            }
+        }
+
+        if(drops.isEmpty() && dropExperience > 0) {
+            if(toInventory) {
+                player.addExperience(dropExperience);
+                dropExperience = 0;
+            }
+            else {
+                // As few orbs as possible.
+                while(dropExperience > 0 && entitiesLeft > 0) {
+                    int orbValue = EntityXPOrb.getXPSplit(dropExperience);
+                    dropExperience -= orbValue;
+                    world.spawnEntityInWorld(new EntityXPOrb(world, initalBlock.getX() + 0.5D, initalBlock.getY() + 0.5D, initalBlock.getZ() + 0.5D, orbValue));
+                    entitiesLeft--;
+                }
             }
-            ItemStack newItemStack = GameRegistry.findItemStack(itemNames[0], itemNames[1], numItems);
-            newItemStack.setItemDamage(itemStack.getDamage());
-            EntityItem newEntityItem = new EntityItem(world, initalBlock.getX() + 0.5F, initalBlock.getY() + 0.5F, initalBlock.getZ() + 0.5F, newItemStack);
-            world.spawnEntityInWorld(newEntityItem);
         }
-        drops.clear();
+
+        // Only tell the client about the inventory once for all the drops.
+        if(inventoryChanged) {
+            player.inventory.markDirty();
+            player.openContainer.detectAndSendChanges();
+        }
+
+        if(!drops.isEmpty() || dropExperience > 0) {
+            return false;
+        }
+        numDropItems = 0;
+        lastDropTime = world.getTotalWorldTime();
+        return true;
     }
 
-    public boolean isRegistered(Point p) {
-        return awaitingEntityDrop.contains(p);
+    /**
+     * Puts items into the main inventory of the player. Stacks of the same
+     * item are topped up first, then empty slots are filled.
+     * @param itemStack Item to add.
+     * @param numItems Number of items to add.
+     * @return Number of items that didn't fit in the inventory.
+     */
+    private int addToInventory(ItemStackID itemStack, int numItems) {
+        ItemStack[] inventory = player.inventory.mainInventory;
+        int slotLimit = Math.min(itemStack.getMaxStackSize(), player.inventory.getInventoryStackLimit());
+
+        for(int i = 0; i < inventory.length && numItems > 0; i++) {
+            ItemStack slot = inventory[i];
+            if(slot != null && slot.stackSize < slotLimit && itemStack.matches(slot)) {
+                int added = Math.min(numItems, slotLimit - slot.stackSize);
+                slot.stackSize += added;
+                numItems -= added;
+            }
+        }
+        for(int i = 0; i < inventory.length && numItems > 0; i++) {
+            if(inventory[i] == null) {
+                ItemStack newItemStack = itemStack.createStack(Math.min(numItems, slotLimit));
+                inventory[i] = newItemStack;
+                numItems -= newItemStack.stackSize;
+            }
+        }
+        return numItems;
+    }
+
+    /**
+     * Checks if a dropped item can be collected and dropped later with the
+     * rest of the vein's drops. Items that are not in the registry are
+     * dropped normally.
+     */
+    static boolean canCollectDrop(ItemStack item) {
+        if(item == null || item.getItem() == null) {
+            return false;
+        }
+
+        // Every registered block has its item registered too, so this covers both.
+        return Item.itemRegistry.getNameForObject(item.getItem()) != null;
     }
 
     public void addDrop(EntityItem entity) {
-        ItemStack item = entity.getEntityItem();
-        ItemStackID itemInfo = new ItemStackID(item.getItem(), item.getItemDamage(), item.getMaxStackSize());
+        addDrop(entity.getEntityItem());
+    }
+
+    public void addDrop(ItemStack item) {
+        ItemStackID itemInfo = new ItemStackID(item.getItem(), item.getItemDamage(), item.getMaxStackSize(), item.getTagCompound());
 
+        numDropItems += item.stackSize;
         if(drops.containsKey(itemInfo)) {
             int oldDropNumber = drops.get(itemInfo);
             int newDropNumber = oldDropNumber + item.stackSize;
@@ -425,16 +984,6 @@ public class MinerInstance {
         }
     }
 
-    public boolean pointIsBlacklisted(Point point) {
-        return startBlacklist.contains(point);
-    }
-
-    public void removeFromBlacklist(Point point) {
-        if(startBlacklist.contains(point)) {
-            startBlacklist.remove(point);
-        }
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,257 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.core;
+
+import portablejim.veinminer.api.Point;
+import portablejim.veinminer.util.LongFrontier;
+import portablejim.veinminer.util.LongHeap;
+import portablejim.veinminer.util.LongObjectHashMap;
+import portablejim.veinminer.util.LongQueue;
+import portablejim.veinminer.util.LongStack;
+
+import java.util.NoSuchElementException;
+
+/**
+ * The traversal strategies that can be chosen for a tool type with
+ * "traversal" in tools-and-blocks.json.
+ */
+
+public enum Traversal implements TraversalStrategy {
+    /**
+     * Every block touching the mined block, including edges and corners,
+     * in the order they were found.
+     */
+    ALL("all") {
+        @Override
+        public LongFrontier createFrontier(Point start) {
+            return new LongQueue();
+        }
+    },
+    /**
+     * Every block touching the mined block, closest to the first block
+     * first.
+     */
+    DISTANCE("distance") {
+        @Override
+        public LongFrontier createFrontier(Point start) {
+            return new DistanceFrontier(start);
+        }
+    },
+    /**
+     * Every block touching the mined block, following one path as far as
+     * it goes before going back.
+     */
+    DEPTH("depth") {
+        @Override
+        public LongFrontier createFrontier(Point start) {
+            return new LongStack();
+        }
+    },
+    /**
+     * Only blocks sharing a face with the mined block, in the order they
+     * were found.
+     */
+    FACE("face") {
+        @Override
+        public LongFrontier createFrontier(Point start) {
+            return new LongQueue();
+        }
+
+        @Override
+        public int getNeighbours(int x, int y, int z, long[] output) {
+            output[0] = Point.toLong(x, y - 1, z);
+            output[1] = Point.toLong(x, y + 1, z);
+            output[2] = Point.toLong(x, y, z - 1);
+            output[3] = Point.toLong(x, y, z + 1);
+            output[4] = Point.toLong(x - 1, y, z);
+            output[5] = Point.toLong(x + 1, y, z);
+            return 6;
+        }
+    },
+    /**
+     * Every block touching the mined block, finishing the blocks in one
+     * chunk before moving to the next chunk.
+     */
+    CHUNK("chunk") {
+        @Override
+        public LongFrontier createFrontier(Point start) {
+            return new ChunkFrontier();
+        }
+    };
+
+    public static final Traversal DEFAULT = ALL;
+
+    private final String configName;
+
+    Traversal(String configName) {
+        this.configName = configName;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    public int getNeighbours(int x, int y, int z, long[] output) {
+        int i = 0;
+        for(int dy = -1; dy <= 1; dy++) {
+            for(int dz = -1; dz <= 1; dz++) {
+                for(int dx = -1; dx <= 1; dx++) {
+                    if(dx == 0 && dy == 0 && dz == 0) {
+                        continue;
+                    }
+                    output[i++] = Point.toLong(x + dx, y + dy, z + dz);
+                }
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Gets the traversal with the name used in the config.
+     * @param configName Name of the traversal.
+     * @return The traversal, or null if there is none with the name.
+     */
+    public static Traversal fromConfigName(String configName) {
+        for(Traversal traversal : values()) {
+            if(traversal.configName.equalsIgnoreCase(configName)) {
+                return traversal;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives out points closest to the first block first.
+     */
+    private static class DistanceFrontier implements LongFrontier {
+        private final LongHeap heap;
+        private final Point start;
+
+        DistanceFrontier(Point start) {
+            heap = new LongHeap();
+            this.start = start;
+        }
+
+        public void add(long value) {
+            long dx = Point.unpackX(value) - start.getX();
+            long dy = Point.unpackY(value) - start.getY();
+            long dz = Point.unpackZ(value) - start.getZ();
+            heap.add(value, dx * dx + dy * dy + dz * dz);
+        }
+
+        public long remove() {
+            return heap.remove();
+        }
+
+        public int size() {
+            return heap.size();
+        }
+
+        public boolean isEmpty() {
+            return heap.isEmpty();
+        }
+
+        public void clear() {
+            heap.clear();
+        }
+    }
+
+    /**
+     * Gives out all the points in one chunk before moving on to the next
+     * chunk, with chunks in the order they were first seen. Inside a chunk
+     * points go up one 16x16x16 section at a time, and are in Z-order
+     * inside each section, so points next to each other in the world are
+     * given out close together.
+     */
+    private static class ChunkFrontier implements LongFrontier {
+        /**
+         * Bits of a number from 0 to 15 spread out to every third bit.
+         */
+        private static final int[] SPREAD = new int[16];
+
+        static {
+            for(int i = 0; i < 16; i++) {
+                int spread = 0;
+                for(int bit = 0; bit < 4; bit++) {
+                    spread |= ((i >> bit) & 1) << (bit * 3);
+                }
+                SPREAD[i] = spread;
+            }
+        }
+
+        private final LongObjectHashMap<LongHeap> chunks;
+        private final LongQueue chunkOrder;
+        private LongHeap current;
+        private long currentKey;
+        private int size;
+
+        ChunkFrontier() {
+            chunks = new LongObjectHashMap<LongHeap>();
+            chunkOrder = new LongQueue();
+            current = null;
+            size = 0;
+        }
+
+        public void add(long value) {
+            int x = Point.unpackX(value);
+            int y = Point.unpackY(value);
+            int z = Point.unpackZ(value);
+            long key = Point.toLong(x >> 4, 0, z >> 4);
+            LongHeap chunk = chunks.get(key);
+            if(chunk == null) {
+                chunk = new LongHeap();
+                chunks.put(key, chunk);
+                chunkOrder.add(key);
+            }
+            long order = SPREAD[x & 15] | SPREAD[z & 15] << 1 | SPREAD[y & 15] << 2;
+            chunk.add(value, (long) (y >> 4) << 12 | order);
+            size++;
+        }
+
+        public long remove() {
+            if(size == 0) {
+                throw new NoSuchElementException();
+            }
+            while(current == null || current.isEmpty()) {
+                if(current != null) {
+                    chunks.remove(currentKey);
+                }
+                currentKey = chunkOrder.remove();
+                current = chunks.get(currentKey);
+            }
+            size--;
+            return current.remove();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public void clear() {
+            chunks.clear();
+            chunkOrder.clear();
+            current = null;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.core;
+
+import portablejim.veinminer.api.Point;
+import portablejim.veinminer.util.LongFrontier;
+
+/**
+ * Decides which blocks around a mined block are tested next, and in what
+ * order the blocks waiting to be tested are mined. The order only depends
+ * on the blocks in the world, so mining the same vein twice mines the
+ * blocks in the same order.
+ */
+
+public interface TraversalStrategy {
+    /**
+     * Creates the collection for the packed points (see
+     * {@link Point#toLong()}) waiting to be tested, which gives them out in
+     * the order they should be tested.
+     * @param start First block of the vein.
+     */
+    LongFrontier createFrontier(Point start);
+
+    /**
+     * Gets the packed points next to the block that should be tested.
+     * @param output Array to put the points in, with room for at least 26.
+     * @return Number of points put in output.
+     */
+    int getNeighbours(int x, int y, int z, long[] output);
+}
@@ -0,0 +1,204 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.core;
+
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.IChunkProvider;
+import portablejim.veinminer.api.Point;
+import portablejim.veinminer.util.ChunkSnapshot;
+import portablejim.veinminer.util.LongFrontier;
+import portablejim.veinminer.util.LongHashSet;
+import portablejim.veinminer.util.LongObjectHashMap;
+import portablejim.veinminer.util.LongQueue;
+
+import java.util.BitSet;
+import java.util.concurrent.Callable;
+
+/**
+ * Finds the blocks in a vein on another thread, using copies of the loaded
+ * chunks around the first block. The copies are made when the planner is
+ * created, on the server thread.
+ *
+ * The blocks found are only a plan: the world may change before they are
+ * mined, so MinerInstance checks each block again before mining it.
+ */
+
+class VeinPlanner implements Callable<VeinPlanner.Plan> {
+    private final LongObjectHashMap<ChunkSnapshot> chunks;
+    private final Point start;
+    private final TraversalStrategy traversal;
+    private final BitSet matchingStates;
+    private final int radiusLimit;
+    private final int blockLimit;
+
+    /**
+     * @param world World the vein is in.
+     * @param start First block of the vein.
+     * @param chunkRadius How many chunks away from the first block to copy.
+     * @param traversal Traversal used for the vein.
+     * @param matchingStates Block states that can be mined. Must not be
+     *                       changed after the planner is created.
+     * @param radiusLimit Radius limit of the vein.
+     * @param blockLimit Block limit of the vein.
+     */
+    VeinPlanner(World world, Point start, int chunkRadius, TraversalStrategy traversal, BitSet matchingStates, int radiusLimit, int blockLimit) {
+        this.start = start;
+        this.traversal = traversal;
+        this.matchingStates = matchingStates;
+        this.radiusLimit = radiusLimit;
+        this.blockLimit = blockLimit;
+
+        // A vein of blockLimit blocks can't reach further than blockLimit blocks from the first block.
+        int reach = radiusLimit > 0 ? radiusLimit : -1;
+        if(blockLimit >= 0 && (reach == -1 || blockLimit < reach)) {
+            reach = blockLimit;
+        }
+        if(reach != -1) {
+            chunkRadius = Math.min(chunkRadius, (reach + 15) >> 4);
+        }
+
+        chunks = new LongObjectHashMap<ChunkSnapshot>();
+        IChunkProvider chunkProvider = world.getChunkProvider();
+        int startChunkX = start.getX() >> 4;
+        int startChunkZ = start.getZ() >> 4;
+        for(int chunkX = startChunkX - chunkRadius; chunkX <= startChunkX + chunkRadius; chunkX++) {
+            for(int chunkZ = startChunkZ - chunkRadius; chunkZ <= startChunkZ + chunkRadius; chunkZ++) {
+                // Only copy chunks that are already loaded.
+                if(!chunkProvider.chunkExists(chunkX, chunkZ)) {
+                    continue;
+                }
+
+                // Nothing outside the limits is mined, so only copy the sections in them.
+                int minSection = 0;
+                int maxSection = 15;
+                int distanceX = distanceOutside(start.getX(), chunkX << 4);
+                int distanceZ = distanceOutside(start.getZ(), chunkZ << 4);
+                if(radiusLimit > 0) {
+                    int heightLeft = radiusLimit * radiusLimit - distanceX * distanceX - distanceZ * distanceZ;
+                    if(heightLeft < 0) {
+                        continue;
+                    }
+                    int height = (int) Math.sqrt(heightLeft);
+                    minSection = (start.getY() - height) >> 4;
+                    maxSection = (start.getY() + height) >> 4;
+                }
+                if(blockLimit >= 0) {
+                    if(distanceX > blockLimit || distanceZ > blockLimit) {
+                        continue;
+                    }
+                    minSection = Math.max(minSection, (start.getY() - blockLimit) >> 4);
+                    maxSection = Math.min(maxSection, (start.getY() + blockLimit) >> 4);
+                }
+                ChunkSnapshot snapshot = new ChunkSnapshot(world.getChunkFromChunkCoords(chunkX, chunkZ), minSection, maxSection);
+                chunks.put(Point.toLong(chunkX, 0, chunkZ), snapshot);
+            }
+        }
+    }
+
+    /**
+     * Gets how far a position is outside of 16 blocks starting at
+     * blockStart.
+     */
+    private static int distanceOutside(int position, int blockStart) {
+        if(position < blockStart) {
+            return blockStart - position;
+        }
+        if(position > blockStart + 15) {
+            return position - (blockStart + 15);
+        }
+        return 0;
+    }
+
+    /**
+     * Blocks found by the planner.
+     */
+    static class Plan {
+        /**
+         * Blocks to mine, in the order the traversal found them.
+         */
+        final LongQueue points;
+        /**
+         * Every point checked by the planner. Points next to the vein that
+         * weren't copied, or weren't reached before the block limit ran
+         * out, are left out, so they are still found and checked while
+         * mining.
+         */
+        final LongHashSet testedPoints;
+
+        Plan(LongQueue points, LongHashSet testedPoints) {
+            this.points = points;
+            this.testedPoints = testedPoints;
+        }
+    }
+
+    public Plan call() {
+        LongQueue points = new LongQueue();
+        LongHashSet testedPoints = new LongHashSet();
+        LongHashSet seenPoints = new LongHashSet();
+        LongFrontier frontier = traversal.createFrontier(start);
+        long[] neighbours = new long[26];
+        // The first block is already counted as mined.
+        int pointsLeft = blockLimit == -1 ? Integer.MAX_VALUE : blockLimit - 1;
+
+        long startPoint = start.toLong();
+        testedPoints.add(startPoint);
+        seenPoints.add(startPoint);
+        int x = start.getX();
+        int y = start.getY();
+        int z = start.getZ();
+        while(true) {
+            int numNeighbours = traversal.getNeighbours(x, y, z, neighbours);
+            for(int i = 0; i < numNeighbours; i++) {
+                long neighbour = neighbours[i];
+                if(seenPoints.add(neighbour) && getStateId(neighbour) != -1) {
+                    frontier.add(neighbour);
+                }
+            }
+
+            // Find the next block to expand from.
+            boolean found = false;
+            while(!found && !frontier.isEmpty() && pointsLeft > 0) {
+                long point = frontier.remove();
+                testedPoints.add(point);
+                x = Point.unpackX(point);
+                y = Point.unpackY(point);
+                z = Point.unpackZ(point);
+                if(matchingStates.get(getStateId(point)) && (radiusLimit <= 0 || start.isWithinRange(x, y, z, radiusLimit))) {
+                    points.add(point);
+                    pointsLeft--;
+                    found = true;
+                }
+            }
+            if(!found) {
+                return new Plan(points, testedPoints);
+            }
+        }
+    }
+
+    private int getStateId(long point) {
+        int x = Point.unpackX(point);
+        int y = Point.unpackY(point);
+        int z = Point.unpackZ(point);
+        if(y < 0 || y >= 256) {
+            return -1;
+        }
+        ChunkSnapshot chunk = chunks.get(Point.toLong(x >> 4, 0, z >> 4));
+        return chunk != null ? chunk.getStateId(x & 15, y, z & 15) : -1;
+    }
+}
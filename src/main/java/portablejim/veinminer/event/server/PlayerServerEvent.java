@@ -21,6 +21,8 @@ import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
 import cpw.mods.fml.common.gameevent.PlayerEvent.PlayerLoggedInEvent;
 import cpw.mods.fml.common.gameevent.PlayerEvent.PlayerLoggedOutEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+import cpw.mods.fml.common.gameevent.TickEvent.ServerTickEvent;
 import net.minecraft.entity.player.EntityPlayerMP;
 import portablejim.veinminer.VeinMiner;
 import portablejim.veinminer.lib.MinerLogger;
@@ -61,4 +63,19 @@ public class PlayerServerEvent {
     public void disconnected(PlayerLoggedOutEvent event) {
         minerServer.removeClientPlayer(event.player.getPersistentID());
     }
+
+    @SuppressWarnings("UnusedDeclaration")
+    @SubscribeEvent
+    public void serverTick(ServerTickEvent event) {
+        if(minerServer == null) {
+            return;
+        }
+        // Only mine once per tick, after the worlds have ticked.
+        if(event.phase == TickEvent.Phase.START) {
+            minerServer.tickStarted();
+        }
+        else if(event.phase == TickEvent.Phase.END) {
+            minerServer.mineScheduled();
+        }
+    }
 }
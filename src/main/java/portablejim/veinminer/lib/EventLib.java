@@ -0,0 +1,68 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.lib;
+
+import cpw.mods.fml.common.eventhandler.Event;
+import cpw.mods.fml.common.eventhandler.EventBus;
+import net.minecraftforge.common.MinecraftForge;
+
+import java.lang.reflect.Field;
+
+/**
+ * Provides extra functions dealing with events.
+ */
+public class EventLib {
+    /**
+     * Id of the Forge event bus, used to get the listeners for the bus from
+     * an event's ListenerList. -1 if it couldn't be found.
+     */
+    private static int forgeBusId = -2;
+
+    private static int getForgeBusId() {
+        if(forgeBusId == -2) {
+            forgeBusId = -1;
+            try {
+                Field busIdField = EventBus.class.getDeclaredField("busID");
+                busIdField.setAccessible(true);
+                forgeBusId = busIdField.getInt(MinecraftForge.EVENT_BUS);
+            }
+            catch (NoSuchFieldException e) {
+                MinerLogger.debug("Unable to find the Forge event bus id: %s", e.toString());
+            }
+            catch (IllegalAccessException e) {
+                MinerLogger.debug("Unable to find the Forge event bus id: %s", e.toString());
+            }
+        }
+        return forgeBusId;
+    }
+
+    /**
+     * Checks if anything is listening for the event on the Forge event bus.
+     * @param event Event of the type to check. Any instance of the class will
+     *              do, as the listeners are the same for every instance.
+     * @return If there are listeners, or true if it can't be worked out.
+     */
+    public static boolean hasListeners(Event event) {
+        int busId = getForgeBusId();
+        if(busId < 0) {
+            return true;
+        }
+        return event.getListenerList().getListeners(busId).length > 0;
+    }
+}
@@ -24,6 +24,7 @@ import net.minecraft.command.ICommand;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.command.WrongUsageException;
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.dedicated.DedicatedServer;
 import net.minecraft.util.StatCollector;
 import portablejim.veinminer.configuration.ConfigurationSettings;
@@ -51,7 +52,8 @@ public class MinerCommand extends CommandBase {
     public static final int COMMAND_SAVE = 6;
     public static final int COMMAND_RELOAD = 7;
     public static final int COMMAND_HELP = 8;
-    private static final String[] commands = new String[]{"mode", "blocklist", "toollist", "blocklimit", "radius", "per_tick", "saveconfig", "reloadconfig", "help"};
+    public static final int COMMAND_WEIGHT = 9;
+    private static final String[] commands = new String[]{"mode", "blocklist", "toollist", "blocklimit", "radius", "per_tick", "saveconfig", "reloadconfig", "help", "weight"};
     private static final String[] modes = new String[] {"auto", "sneak", "no_sneak"};
 
     public MinerCommand(MinerServer minerServerInstance) {
@@ -117,6 +119,10 @@ public class MinerCommand extends CommandBase {
             else if(astring[0].equals(commands[COMMAND_HELP])) {
                 runCommandHelp(senderPlayer, astring);
             }
+            else if(astring[0].equals(commands[COMMAND_WEIGHT])) {
+                needAdmin(senderPlayer);
+                runCommandWeight(senderPlayer, astring);
+            }
             else
             {
                 showUsageError("command.veinminer");
@@ -335,6 +341,33 @@ public class MinerCommand extends CommandBase {
 
         int actualRate = minerServer.getConfigurationSettings().getBlocksPerTick();
         senderPlayer.sendProperChat("command.veinminer.pertick.set", actualRate);
+        if(minerServer.getConfigurationSettings().getTickTimeBudget() > 0) {
+            senderPlayer.sendProperChat("command.veinminer.pertick.budget", minerServer.getConfigurationSettings().getTickTimeBudget());
+        }
+    }
+
+    private void runCommandWeight(ICustomCommandSender senderPlayer, String[] astring) {
+        if(astring.length == 1) {
+            showUsageError("command.veinminer.weight");
+        }
+
+        String playerName = astring[1];
+        ConfigurationSettings settings = minerServer.getConfigurationSettings();
+        if(astring.length > 2) {
+            int newWeight = 0;
+            try {
+                newWeight = Integer.parseInt(astring[2]);
+            }
+            catch (NumberFormatException e) {
+                showUsageError("command.veinminer.weight");
+            }
+
+            settings.setPlayerWeight(playerName, newWeight);
+            senderPlayer.sendProperChat("command.veinminer.weight.set", playerName, settings.getPlayerWeight(playerName));
+        }
+        else {
+            senderPlayer.sendProperChat("command.veinminer.weight.get", playerName, settings.getPlayerWeight(playerName));
+        }
     }
 
     private void runCommandSave(ICustomCommandSender senderPlayer) {
@@ -367,6 +400,7 @@ public class MinerCommand extends CommandBase {
             senderPlayer.sendProperChat("command.veinminer.help7");
             senderPlayer.sendProperChat("command.veinminer.help8");
             senderPlayer.sendProperChat("command.veinminer.help9");
+            senderPlayer.sendProperChat("command.veinminer.help11");
         }
     }
 
@@ -389,6 +423,9 @@ public class MinerCommand extends CommandBase {
                 else if(arguments[0].equals(commands[COMMAND_TOOLLIST])) {
                     return getListOfStringsMatchingLastWord(arguments, commands);
                 }
+                else if(arguments[0].equals(commands[COMMAND_WEIGHT])) {
+                    return getListOfStringsMatchingLastWord(arguments, MinecraftServer.getServer().getAllUsernames());
+                }
             case 3:
                 if(arguments[0].equals(commands[COMMAND_BLOCKLIST]) || arguments[0].equals(commands[COMMAND_TOOLLIST])) {
                     String[] actions = { "add", "remove" };
@@ -17,21 +17,26 @@
 
 package portablejim.veinminer.server;
 
-import net.minecraft.entity.Entity;
-import net.minecraft.entity.item.EntityItem;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import portablejim.veinminer.configuration.ConfigurationSettings;
 import portablejim.veinminer.configuration.ConfigurationValues;
 import portablejim.veinminer.core.MinerInstance;
 import portablejim.veinminer.util.PlayerStatus;
-import portablejim.veinminer.api.Point;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Singleton class that co-ordinates various actions. It allows the current
@@ -47,13 +52,23 @@ public class MinerServer {
     private HashSet<UUID> clientPlayers;
     private ConcurrentHashMap<UUID, PlayerStatus> players;
     private ConfigurationSettings settings;
+    private TickScheduler tickScheduler;
+    private int roundRobinStart;
+
+    /**
+     * Threads used to plan veins. Shared between servers, and only created
+     * when the first vein is planned.
+     */
+    private static ExecutorService plannerThreads;
 
     public MinerServer(ConfigurationValues configValues) {
-        minerInstances = Collections.synchronizedSet(new HashSet<MinerInstance>());
+        minerInstances = Collections.synchronizedSet(new LinkedHashSet<MinerInstance>());
         playerMinerInstances = new ConcurrentHashMap<EntityPlayerMP, MinerInstance>();
         clientPlayers = new HashSet<UUID>();
         players = new ConcurrentHashMap<UUID, PlayerStatus>();
         settings = new ConfigurationSettings(configValues);
+        tickScheduler = new TickScheduler();
+        roundRobinStart = 0;
     }
 
     public void setPlayerStatus(UUID player, PlayerStatus status) {
@@ -69,58 +84,6 @@ public class MinerServer {
         }
     }
 
-    public void addEntity(Entity entity) {
-        int eX = (int) Math.floor(entity.posX);
-        int eY = (int) Math.floor(entity.posY);
-        int eZ = (int) Math.floor(entity.posZ);
-        Point p = new Point(eX, eY, eZ);
-
-        if(!EntityItem.class.isInstance(entity)) {
-            return;
-        }
-        EntityItem entityItem = (EntityItem) entity;
-
-        synchronized (minerInstances) {
-            for (MinerInstance minerInstance : minerInstances) {
-                if (minerInstance.isRegistered(p)) {
-                    minerInstance.addDrop(entityItem);
-                }
-            }
-        }
-    }
-
-    public boolean awaitingDrop(Point p) {
-        synchronized (minerInstances) {
-            for (MinerInstance minerInstance : minerInstances) {
-                if (minerInstance.isRegistered(p)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    public boolean pointIsBlacklisted(Point point) {
-        synchronized (minerInstances) {
-            for (MinerInstance minerInstance : minerInstances) {
-                if (minerInstance.pointIsBlacklisted(point)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    public void removeFromBlacklist(Point point) {
-        synchronized (minerInstances) {
-            for (MinerInstance minerInstance : minerInstances) {
-                if (minerInstance.pointIsBlacklisted(point)) {
-                    minerInstance.removeFromBlacklist(point);
-                }
-            }
-        }
-    }
-
     public void addInstance(MinerInstance ins) {
         synchronized (minerInstances) {
             minerInstances.add(ins);
@@ -144,6 +107,109 @@ public class MinerServer {
         }
     }
 
+    public void tickStarted() {
+        tickScheduler.startTick();
+    }
+
+    /**
+     * Runs every active MinerInstance for this tick. The blocks mined in the
+     * tick are shared out between the instances in rounds, with each
+     * instance mining as many blocks as its player's weight each round.
+     */
+    public void mineScheduled() {
+        List<MinerInstance> activeInstances;
+        synchronized (minerInstances) {
+            if(minerInstances.isEmpty()) {
+                return;
+            }
+            // Instances remove themselves when they finish, so work on a copy.
+            activeInstances = new ArrayList<MinerInstance>(minerInstances);
+        }
+
+        int blockLimit;
+        long deadline;
+        if(settings.getTickTimeBudget() > 0) {
+            blockLimit = Integer.MAX_VALUE;
+            deadline = tickScheduler.getDeadline(settings);
+        }
+        else {
+            blockLimit = settings.getBlocksPerTick();
+            deadline = Long.MAX_VALUE;
+        }
+        int globalRemaining = settings.getGlobalBlocksPerTick() == -1 ? Integer.MAX_VALUE : settings.getGlobalBlocksPerTick();
+
+        // Start at a different instance each tick so no instance is always first.
+        roundRobinStart = (roundRobinStart + 1) % activeInstances.size();
+        Collections.rotate(activeInstances, -roundRobinStart);
+
+        int numInstances = activeInstances.size();
+        int[] weights = new int[numInstances];
+        int[] minedThisTick = new int[numInstances];
+        boolean[] done = new boolean[numInstances];
+        for(int i = 0; i < numInstances; i++) {
+            weights[i] = settings.getPlayerWeight(activeInstances.get(i).getPlayer().getCommandSenderName());
+        }
+
+        boolean firstRound = true;
+        boolean madeProgress = true;
+        while(madeProgress && globalRemaining > 0) {
+            madeProgress = false;
+            for(int i = 0; i < numInstances && globalRemaining > 0; i++) {
+                // Every instance gets to mine in the first round, even if out of time.
+                if(done[i] || (!firstRound && deadline != Long.MAX_VALUE && System.nanoTime() >= deadline)) {
+                    continue;
+                }
+                int quantity = Math.min(Math.min(weights[i], blockLimit - minedThisTick[i]), globalRemaining);
+                if(quantity <= 0) {
+                    done[i] = true;
+                    continue;
+                }
+
+                MinerInstance minerInstance = activeInstances.get(i);
+                int mined = minerInstance.mineScheduled(quantity, deadline);
+                minedThisTick[i] += mined;
+                globalRemaining -= mined;
+                if(mined > 0) {
+                    madeProgress = true;
+                }
+                if(minerInstance.isVeinFinished() || mined < quantity) {
+                    // Finished, or ran out of time for this tick.
+                    done[i] = true;
+                }
+            }
+            firstRound = false;
+        }
+
+        // Hunger, experience, drops and the batch events are done once per tick rather than for every block.
+        for(MinerInstance minerInstance : activeInstances) {
+            minerInstance.finishTick();
+        }
+    }
+
+    /**
+     * Runs a vein planner on another thread.
+     * @param planner Planner to run.
+     * @return Future for the result of the planner.
+     */
+    public <T> Future<T> submitPlanner(Callable<T> planner) {
+        synchronized (MinerServer.class) {
+            if(plannerThreads == null) {
+                int numThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+                plannerThreads = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+                    private int threadNum = 0;
+
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "VeinMiner planner " + ++threadNum);
+                        // Don't keep the server running.
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            return plannerThreads.submit(planner);
+        }
+    }
+
     public ConfigurationSettings getConfigurationSettings() {
         return settings;
     }
@@ -0,0 +1,81 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.server;
+
+import net.minecraft.server.MinecraftServer;
+import portablejim.veinminer.configuration.ConfigurationSettings;
+import portablejim.veinminer.lib.MinerLogger;
+
+/**
+ * Works out how long can be spent mining blocks in the current tick, using
+ * the time left over in the tick after the worlds have been updated.
+ */
+
+public class TickScheduler {
+    private static final long TICK_LENGTH = 50000000L;
+    private static final long NANOSECONDS_PER_MILLISECOND = 1000000L;
+
+    private long tickStart;
+    private boolean overloaded;
+
+    public TickScheduler() {
+        tickStart = 0;
+        overloaded = false;
+    }
+
+    public void startTick() {
+        tickStart = System.nanoTime();
+    }
+
+    /**
+     * Gets the time (from System.nanoTime()) that mining should stop at for
+     * this tick.
+     * @param settings Settings with the time budget and mean tick time limit.
+     * @return Time to stop mining. If there is no time left, this is the
+     * current time and only the minimum amount of mining should be done.
+     */
+    public long getDeadline(ConfigurationSettings settings) {
+        long now = System.nanoTime();
+
+        boolean nowOverloaded = getMeanTickTime() > settings.getMaxMeanTickTime() * NANOSECONDS_PER_MILLISECOND;
+        if(nowOverloaded != overloaded) {
+            MinerLogger.debug(nowOverloaded ? "Server overloaded. Slowing down mining." : "Server no longer overloaded.");
+            overloaded = nowOverloaded;
+        }
+        if(overloaded || tickStart == 0) {
+            return now;
+        }
+
+        long slack = TICK_LENGTH - (now - tickStart);
+        return now + Math.max(0, Math.min(slack, settings.getTickTimeBudget()));
+    }
+
+    private static long getMeanTickTime() {
+        MinecraftServer server = MinecraftServer.getServer();
+        if(server == null) {
+            return 0;
+        }
+
+        long total = 0;
+        for(long tickTime : server.tickTimeArray) {
+            total += tickTime;
+        }
+        return total / server.tickTimeArray.length;
+    }
+}
@@ -34,6 +34,17 @@ import java.util.regex.Pattern;
 
 public class BlockID implements Comparable<BlockID>
 {
+    /*
+     * Block states are packed into an int as (block registry id << 4 | metadata)
+     * for use inside the mining code, where BlockID's strings are too slow.
+     * Registry ids can change between worlds, so these should not be stored.
+     */
+    private static final int METADATA_BITS = 4;
+    private static final int METADATA_MASK = (1 << METADATA_BITS) - 1;
+    public static final int NUM_METADATA = 1 << METADATA_BITS;
+    public static final int MAX_BLOCK_ID = 4095;
+    public static final int NUM_STATE_IDS = (MAX_BLOCK_ID + 1) << METADATA_BITS;
+
     public String name;
     public int metadata;
     
@@ -72,6 +83,52 @@ public class BlockID implements Comparable<BlockID>
         this(Block.blockRegistry.getNameForObject(world.getBlock(x, y, z)), metadata);
     }
 
+    public static int getStateId(Block block, int metadata) {
+        return Block.getIdFromBlock(block) << METADATA_BITS | (metadata & METADATA_MASK);
+    }
+
+    public static int getStateId(int blockId, int metadata) {
+        return blockId << METADATA_BITS | (metadata & METADATA_MASK);
+    }
+
+    public static int getStateId(World world, int x, int y, int z) {
+        return getStateId(world.getBlock(x, y, z), world.getBlockMetadata(x, y, z));
+    }
+
+    public static int getBlockId(int stateId) {
+        return stateId >>> METADATA_BITS;
+    }
+
+    public static int getMetadata(int stateId) {
+        return stateId & METADATA_MASK;
+    }
+
+    public static Block getBlock(int stateId) {
+        return Block.getBlockById(getBlockId(stateId));
+    }
+
+    /**
+     * Gets the first and last state id covered by this BlockID. A metadata
+     * of -1 covers every metadata value of the block.
+     * @return {first, last}, or null if the block does not exist or the
+     * metadata cannot be stored in a state id.
+     */
+    public int[] getStateIdRange() {
+        Block block = Block.getBlockFromName(name);
+        if(block == null || metadata > METADATA_MASK) {
+            return null;
+        }
+        int blockId = Block.getIdFromBlock(block);
+        if(blockId < 0 || blockId > MAX_BLOCK_ID) {
+            return null;
+        }
+        if(metadata == -1) {
+            return new int[] { blockId << METADATA_BITS, blockId << METADATA_BITS | METADATA_MASK };
+        }
+        int stateId = blockId << METADATA_BITS | metadata;
+        return new int[] { stateId, stateId };
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -0,0 +1,100 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.util;
+
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.NibbleArray;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * Copy of the block ids and metadata of some of the 16x16x16 sections of a
+ * chunk. It is never changed after it is made, so it can be read from
+ * other threads while the world carries on changing.
+ */
+
+public class ChunkSnapshot {
+    private static final int SECTIONS = 16;
+
+    private final int minSection;
+    private final int maxSection;
+    private final byte[][] blockLSB;
+    private final byte[][] blockMSB;
+    private final byte[][] metadata;
+
+    /**
+     * Copies sections of a chunk. Must be called from the thread the world
+     * is ticked on.
+     * @param chunk Chunk to copy.
+     * @param minSection Lowest section (y / 16) to copy.
+     * @param maxSection Highest section (y / 16) to copy.
+     */
+    public ChunkSnapshot(Chunk chunk, int minSection, int maxSection) {
+        this.minSection = Math.max(minSection, 0);
+        this.maxSection = Math.min(maxSection, SECTIONS - 1);
+        blockLSB = new byte[SECTIONS][];
+        blockMSB = new byte[SECTIONS][];
+        metadata = new byte[SECTIONS][];
+
+        ExtendedBlockStorage[] storageArray = chunk.getBlockStorageArray();
+        for(int section = this.minSection; section <= this.maxSection; section++) {
+            ExtendedBlockStorage storage = storageArray[section];
+            if(storage == null || storage.isEmpty()) {
+                // Only air, so nothing needs copying.
+                continue;
+            }
+            blockLSB[section] = storage.getBlockLSBArray().clone();
+            NibbleArray msb = storage.getBlockMSBArray();
+            if(msb != null) {
+                blockMSB[section] = msb.data.clone();
+            }
+            metadata[section] = storage.getMetadataArray().data.clone();
+        }
+    }
+
+    /**
+     * Gets the block state id (see {@link BlockID#getStateId(int, int)}) of
+     * a block in the chunk.
+     * @param x X position inside the chunk (0 to 15).
+     * @param y Y position.
+     * @param z Z position inside the chunk (0 to 15).
+     * @return The block state id, or -1 if the block's section wasn't copied.
+     */
+    public int getStateId(int x, int y, int z) {
+        int section = y >> 4;
+        if(section < minSection || section > maxSection) {
+            return -1;
+        }
+        byte[] lsb = blockLSB[section];
+        if(lsb == null) {
+            // Empty section.
+            return 0;
+        }
+
+        int index = (y & 15) << 8 | z << 4 | x;
+        int blockId = lsb[index] & 255;
+        if(blockMSB[section] != null) {
+            blockId |= getNibble(blockMSB[section], index) << 8;
+        }
+        return BlockID.getStateId(blockId, getNibble(metadata[section], index));
+    }
+
+    private static int getNibble(byte[] data, int index) {
+        return (data[index >> 1] >> ((index & 1) << 2)) & 15;
+    }
+}
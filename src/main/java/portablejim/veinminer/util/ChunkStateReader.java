@@ -0,0 +1,93 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.util;
+
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * Reads block state ids (see {@link BlockID#getStateId(net.minecraft.block.Block, int)})
+ * from a world, keeping the last chunk used so that reading blocks in the
+ * same chunk is only array lookups instead of finding the chunk in the
+ * chunk provider for every block.
+ *
+ * The kept chunk should be forgotten with {@link #clear()} at the end of
+ * every tick, as the world may unload it between ticks.
+ *
+ * Chunks are never loaded by the reader. Blocks in chunks that aren't
+ * loaded are read as {@link #UNLOADED}.
+ */
+
+public class ChunkStateReader {
+    public static final int UNLOADED = -1;
+
+    /**
+     * Air is always block id 0.
+     */
+    private static final int AIR_STATE = 0;
+    private static final int WORLD_LIMIT = 30000000;
+
+    private final World world;
+    private Chunk chunk;
+    private int chunkX;
+    private int chunkZ;
+
+    public ChunkStateReader(World world) {
+        this.world = world;
+        chunk = null;
+    }
+
+    public int getStateId(int x, int y, int z) {
+        if(x < -WORLD_LIMIT || z < -WORLD_LIMIT || x >= WORLD_LIMIT || z >= WORLD_LIMIT || y < 0 || y >= 256) {
+            // Let the world deal with blocks outside of the world.
+            return BlockID.getStateId(world, x, y, z);
+        }
+
+        int newChunkX = x >> 4;
+        int newChunkZ = z >> 4;
+        if(chunk == null || newChunkX != chunkX || newChunkZ != chunkZ) {
+            if(!world.getChunkProvider().chunkExists(newChunkX, newChunkZ)) {
+                return UNLOADED;
+            }
+            chunk = world.getChunkFromChunkCoords(newChunkX, newChunkZ);
+            chunkX = newChunkX;
+            chunkZ = newChunkZ;
+        }
+
+        ExtendedBlockStorage storage = chunk.getBlockStorageArray()[y >> 4];
+        if(storage == null) {
+            return AIR_STATE;
+        }
+        return BlockID.getStateId(storage.getBlockByExtId(x & 15, y & 15, z & 15), storage.getExtBlockMetadata(x & 15, y & 15, z & 15));
+    }
+
+    /**
+     * Checks if the chunk a block is in is loaded.
+     */
+    public boolean isChunkLoaded(int x, int z) {
+        int newChunkX = x >> 4;
+        int newChunkZ = z >> 4;
+        return (chunk != null && newChunkX == chunkX && newChunkZ == chunkZ) || world.getChunkProvider().chunkExists(newChunkX, newChunkZ);
+    }
+
+    public void clear() {
+        chunk = null;
+    }
+}
@@ -1,49 +1,121 @@
 package portablejim.veinminer.util;
 
+import java.util.Arrays;
+
 /**
  * Class to calculate exp values.
+ *
+ * Exp values are the total exp a player has, counting from level 0. The
+ * total exp for the first levels is kept in a table; higher levels are
+ * worked out from the formula for the exp needed for each level.
  */
 public class ExpCalculator {
     private static int LEVEL15EXP = 255;
     private static int LEVEL30EXP = 825;
 
-    private static float area15to30(int x) {
-        return ((float)3*x*x)/2+17*x;
-    }
-
-    private static int value15to30(int x) {
-        return 3*x + 17;
-    }
+    private static final int TABLE_LEVELS = 1024;
+    /**
+     * Total exp needed to reach each level up to TABLE_LEVELS.
+     */
+    private static final int[] levelExp = new int[TABLE_LEVELS + 1];
 
-    private static float area30plus(int x) {
-        return ((float)7*x*x)/2+62*x;
-    }
-
-    private static int value30plus(int x) {
-        return 7*x + 62;
+    static {
+        for(int level = 1; level <= TABLE_LEVELS; level++) {
+            levelExp[level] = levelExp[level - 1] + xpBarCap(level - 1);
+        }
     }
 
-    private static int xpBarCap(int xpLevel)
+    /**
+     * Gets the exp needed to get from the start of the level to the next
+     * level. Same as EntityPlayer.xpBarCap().
+     */
+    public static int xpBarCap(int xpLevel)
     {
         return xpLevel >= 30 ? 62 + (xpLevel - 30) * 7 : (xpLevel >= 15 ? 17 + (xpLevel - 15) * 3 : 17);
     }
 
-    private static int additionalExp(int expLevel, float xpBar) {
-        return (int) ((float)xpBarCap(expLevel) * xpBar);
+    private static long additionalExp(int expLevel, float xpBar) {
+        // Same as xpBarCap(), but without overflowing for very high levels.
+        long barCap = expLevel >= 30 ? 62 + (expLevel - 30) * 7L : (expLevel >= 15 ? 17 + (expLevel - 15) * 3L : 17);
+        return (long) ((float) barCap * xpBar);
     }
 
-    public static int getExp(int expLevel, float expBar) {
+    private static long calculateLevelExp(int expLevel) {
         if(expLevel <= 15) {
-            return 17 * expLevel + additionalExp(expLevel, expBar);
+            return 17L * expLevel;
         }
         else if(expLevel <= 30) {
-            int diff = expLevel - 15;
-            return (int) (area15to30(diff) - area15to30(0) - ((float)value15to30(diff) - (float)value15to30(0))/2.0 + 255 + additionalExp(expLevel, expBar));
+            long diff = expLevel - 15;
+            return LEVEL15EXP + 17 * diff + 3 * diff * (diff - 1) / 2;
         }
         else {
-            int diff = expLevel - 30;
-            return (int) (area30plus(diff) - area30plus(0) - ((float)value30plus(diff) - (float)value30plus(0))/2.0 + 825 + additionalExp(expLevel, expBar));
+            long diff = expLevel - 30;
+            return LEVEL30EXP + 62 * diff + 7 * diff * (diff - 1) / 2;
+        }
+    }
+
+    /**
+     * Gets the total exp needed to reach the start of the level.
+     * @param expLevel Level to get the exp for.
+     * @return Total exp, or Integer.MAX_VALUE if it is larger than that.
+     */
+    public static int getLevelExp(int expLevel) {
+        if(expLevel <= 0) {
+            return 0;
+        }
+        if(expLevel <= TABLE_LEVELS) {
+            return levelExp[expLevel];
+        }
+        if(expLevel >= 1 << 16) {
+            // Far past Integer.MAX_VALUE, and big enough to overflow a long in calculateLevelExp().
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.min(calculateLevelExp(expLevel), Integer.MAX_VALUE);
+    }
+
+    public static int getExp(int expLevel, float expBar) {
+        return (int) Math.min(getLevelExp(expLevel) + additionalExp(expLevel, expBar), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the level of a player with the total exp. This is the inverse of
+     * getLevelExp().
+     * @param exp Total exp.
+     * @return Highest level whose total exp is not more than exp.
+     */
+    public static int getLevel(int exp) {
+        if(exp <= 0) {
+            return 0;
+        }
+        if(exp < levelExp[TABLE_LEVELS]) {
+            int index = Arrays.binarySearch(levelExp, exp);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        // Above level 30 the total exp is 3.5 * diff^2 + 58.5 * diff + 825.
+        double diff = (-58.5D + Math.sqrt(58.5D * 58.5D + 14.0D * (exp - LEVEL30EXP))) / 7.0D;
+        int level = 30 + (int) diff;
+        // Correct any rounding error in the square root.
+        while(calculateLevelExp(level + 1) <= exp) {
+            level++;
+        }
+        while(calculateLevelExp(level) > exp) {
+            level--;
+        }
+        return level;
+    }
 
+    /**
+     * Gets how far through their level (the exp bar) a player with the total
+     * exp is.
+     * @param exp Total exp.
+     * @return Value from 0 up to (but not including) 1.
+     */
+    public static float getExpBar(int exp) {
+        if(exp <= 0) {
+            return 0;
         }
+        int level = getLevel(exp);
+        return (float) (exp - getLevelExp(level)) / xpBarCap(level);
     }
 }
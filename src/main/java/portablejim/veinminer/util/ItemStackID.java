@@ -18,30 +18,55 @@
 package portablejim.veinminer.util;
 
 import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
 
 /**
  * Class to store the basic information in an ItemStack (well, all that
- * matters in this situation) and allow comparison using only the itemID
- * and damage value. Is both sortable and hashable.
+ * matters in this situation) and allow comparison using only the item,
+ * damage value and NBT data. Is both sortable and hashable.
+ *
+ * The item is kept as a reference and the hash is worked out up front, so
+ * that drops can be counted and spawned without looking up the registry.
  */
 
 public class ItemStackID {
-    private String itemId;
+    private Item item;
     private int damage;
     private int maxStackSize;
+    private NBTTagCompound tag;
+    private int hash;
 
     public ItemStackID(String id, int dam, int stackSize) {
-        itemId = id;
-        damage = dam;
-        maxStackSize = stackSize;
+        this(Item.itemRegistry.getObject(id), dam, stackSize);
     }
 
     public ItemStackID(Item item, int damage, int stackSize) {
-        this(Item.itemRegistry.getNameForObject(item), damage, stackSize);
+        this(item, damage, stackSize, null);
+    }
+
+    /**
+     * @param tag NBT data of the item, or null for none. It is not copied, so
+     *            it shouldn't be changed afterwards.
+     */
+    public ItemStackID(Item item, int damage, int stackSize, NBTTagCompound tag) {
+        this.item = item;
+        this.damage = damage;
+        maxStackSize = stackSize;
+        this.tag = tag;
+        hash = System.identityHashCode(item) * 31 + damage;
+        if(tag != null) {
+            // Tags hash their contents, so equal tags have equal hashes.
+            hash = hash * 31 + tag.hashCode();
+        }
+    }
+
+    public Item getItem() {
+        return item;
     }
 
     public String getItemId() {
-        return itemId;
+        return Item.itemRegistry.getNameForObject(item);
     }
 
     public int getDamage() {
@@ -52,13 +77,37 @@ public class ItemStackID {
         return maxStackSize;
     }
 
+    public NBTTagCompound getTag() {
+        return tag;
+    }
+
+    /**
+     * Checks if the stack is of the same item, with the same damage and NBT
+     * data.
+     */
+    public boolean matches(ItemStack stack) {
+        if(stack.getItem() != item || stack.getItemDamage() != damage) {
+            return false;
+        }
+        return tag == null ? !stack.hasTagCompound() : tag.equals(stack.getTagCompound());
+    }
+
+    /**
+     * Creates a new stack of the item.
+     * @param stackSize Number of items in the stack.
+     * @return The new stack.
+     */
+    public ItemStack createStack(int stackSize) {
+        ItemStack stack = new ItemStack(item, stackSize, damage);
+        if(tag != null) {
+            stack.setTagCompound((NBTTagCompound) tag.copy());
+        }
+        return stack;
+    }
+
     @Override
     public int hashCode() {
-        int output = 0;
-        output += itemId.hashCode() << 16;
-        output += damage;
-
-        return output;
+        return hash;
     }
 
     @Override
@@ -71,6 +120,6 @@ public class ItemStackID {
             return false;
 
         ItemStackID rhs = (ItemStackID) obj;
-        return (itemId.equals(rhs.itemId) && damage == rhs.damage);
+        return (item == rhs.item && damage == rhs.damage && (tag == null ? rhs.tag == null : tag.equals(rhs.tag)));
     }
 }
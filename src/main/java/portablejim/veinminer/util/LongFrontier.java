@@ -0,0 +1,45 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Collection of longs that are taken out in an order decided by the
+ * implementation. Used for the packed points (see
+ * {@link portablejim.veinminer.api.Point#toLong()}) waiting to be tested
+ * while mining a vein.
+ */
+
+public interface LongFrontier {
+    void add(long value);
+
+    /**
+     * Takes the next value out of the collection.
+     * @return The next value.
+     * @throws NoSuchElementException If the collection is empty.
+     */
+    long remove();
+
+    int size();
+
+    boolean isEmpty();
+
+    void clear();
+}
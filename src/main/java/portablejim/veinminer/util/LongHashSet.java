@@ -0,0 +1,196 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of longs using open addressing with linear probing. Removing shifts
+ * later entries back, so no tombstones are left behind.
+ *
+ * Not thread safe.
+ */
+
+public class LongHashSet {
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.5F;
+
+    /** Value used to mark empty slots. Stored separately if added. */
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private boolean containsEmpty;
+
+    public LongHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 2) - 1) << 1;
+        allocate(Math.max(capacity, DEFAULT_CAPACITY));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Adds the value to the set.
+     * @param value Value to add.
+     * @return If the value was not already in the set.
+     */
+    public boolean add(long value) {
+        if(value == EMPTY) {
+            if(containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+
+        int index = LongHashing.hash(value) & mask;
+        while(keys[index] != EMPTY) {
+            if(keys[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = value;
+        size++;
+
+        if(size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if(value == EMPTY) {
+            return containsEmpty;
+        }
+
+        int index = LongHashing.hash(value) & mask;
+        while(keys[index] != EMPTY) {
+            if(keys[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes the value from the set.
+     * @param value Value to remove.
+     * @return If the value was in the set.
+     */
+    public boolean remove(long value) {
+        if(value == EMPTY) {
+            if(!containsEmpty) {
+                return false;
+            }
+            containsEmpty = false;
+            size--;
+            return true;
+        }
+
+        int index = LongHashing.hash(value) & mask;
+        while(keys[index] != EMPTY) {
+            if(keys[index] == value) {
+                keys[index] = EMPTY;
+                size--;
+                shiftKeysBack(index);
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Moves the entries after a removed slot back so that lookups do not
+     * stop early at the new gap.
+     * @param gap Index of the slot that was emptied.
+     */
+    private void shiftKeysBack(int gap) {
+        int index = (gap + 1) & mask;
+        while(keys[index] != EMPTY) {
+            int wanted = LongHashing.hash(keys[index]) & mask;
+            // Move the entry if its wanted slot is not between the gap and where it is now.
+            if(((index - wanted) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                keys[index] = EMPTY;
+                gap = index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        allocate(newCapacity);
+        for(long key : oldKeys) {
+            if(key != EMPTY) {
+                int index = LongHashing.hash(key) & mask;
+                while(keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+            }
+        }
+    }
+
+    /**
+     * Copies the values in the set to a new array, in no particular order.
+     * @return Array of the values.
+     */
+    public long[] toArray() {
+        long[] output = new long[size];
+        int i = 0;
+        if(containsEmpty) {
+            output[i++] = EMPTY;
+        }
+        for(long key : keys) {
+            if(key != EMPTY) {
+                output[i++] = key;
+            }
+        }
+        return output;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        containsEmpty = false;
+        size = 0;
+    }
+}
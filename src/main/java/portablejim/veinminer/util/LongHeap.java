@@ -0,0 +1,152 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Priority queue of longs backed by a binary heap in arrays that grow when
+ * full. Values with the lowest priority are taken out first. Values with
+ * the same priority are taken out in the order they were added, so the
+ * order is always the same for the same values.
+ *
+ * Not thread safe.
+ */
+
+public class LongHeap {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private long[] values;
+    private long[] priorities;
+    private long[] sequence;
+    private int size;
+    private long nextSequence;
+
+    public LongHeap() {
+        values = new long[DEFAULT_CAPACITY];
+        priorities = new long[DEFAULT_CAPACITY];
+        sequence = new long[DEFAULT_CAPACITY];
+        size = 0;
+        nextSequence = 0;
+    }
+
+    public void add(long value, long priority) {
+        if(size == values.length) {
+            grow();
+        }
+        int i = size++;
+        long seq = nextSequence++;
+        // Move parents down until the place for the new value is found.
+        while(i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(!before(priority, seq, parent)) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        set(i, value, priority, seq);
+    }
+
+    /**
+     * Takes the value with the lowest priority from the heap.
+     * @return The value with the lowest priority.
+     * @throws NoSuchElementException If the heap is empty.
+     */
+    public long remove() {
+        if(size == 0) {
+            throw new NoSuchElementException();
+        }
+        long result = values[0];
+        size--;
+        if(size > 0) {
+            long value = values[size];
+            long priority = priorities[size];
+            long seq = sequence[size];
+            // Move children up until the place for the last value is found.
+            int i = 0;
+            int half = size >>> 1;
+            while(i < half) {
+                int child = (i << 1) + 1;
+                int right = child + 1;
+                if(right < size && before(priorities[right], sequence[right], child)) {
+                    child = right;
+                }
+                if(!before(priorities[child], sequence[child], priority, seq)) {
+                    break;
+                }
+                move(child, i);
+                i = child;
+            }
+            set(i, value, priority, seq);
+        }
+        return result;
+    }
+
+    public long peek() {
+        if(size == 0) {
+            throw new NoSuchElementException();
+        }
+        return values[0];
+    }
+
+    private boolean before(long priority, long seq, int index) {
+        return before(priority, seq, priorities[index], sequence[index]);
+    }
+
+    private static boolean before(long priority, long seq, long otherPriority, long otherSeq) {
+        return priority < otherPriority || (priority == otherPriority && seq < otherSeq);
+    }
+
+    private void move(int from, int to) {
+        set(to, values[from], priorities[from], sequence[from]);
+    }
+
+    private void set(int index, long value, long priority, long seq) {
+        values[index] = value;
+        priorities[index] = priority;
+        sequence[index] = seq;
+    }
+
+    private void grow() {
+        int newCapacity = values.length << 1;
+        long[] newValues = new long[newCapacity];
+        long[] newPriorities = new long[newCapacity];
+        long[] newSequence = new long[newCapacity];
+        System.arraycopy(values, 0, newValues, 0, size);
+        System.arraycopy(priorities, 0, newPriorities, 0, size);
+        System.arraycopy(sequence, 0, newSequence, 0, size);
+        values = newValues;
+        priorities = newPriorities;
+        sequence = newSequence;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+        nextSequence = 0;
+    }
+}
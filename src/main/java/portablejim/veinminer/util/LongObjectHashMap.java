@@ -0,0 +1,203 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.util;
+
+import java.util.Arrays;
+
+/**
+ * Map from longs to objects using open addressing with linear probing.
+ * Missing keys and keys without a value are told apart by a null value, so
+ * null values are not allowed.
+ *
+ * Not thread safe.
+ */
+
+public class LongObjectHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.5F;
+
+    /** Key used to mark empty slots. Its value is stored separately if added. */
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private Object emptyKeyValue;
+
+    public LongObjectHashMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Gets the value stored for the key.
+     * @param key Key to look up.
+     * @return The value, or null if there is no value for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if(key == EMPTY) {
+            return (V) emptyKeyValue;
+        }
+
+        int index = LongHashing.hash(key) & mask;
+        while(keys[index] != EMPTY) {
+            if(keys[index] == key) {
+                return (V) values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Stores the value for the key.
+     * @param key Key to store the value under.
+     * @param value Value to store. Must not be null.
+     * @return The previous value for the key, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if(value == null) {
+            throw new NullPointerException("Null values are not allowed");
+        }
+
+        if(key == EMPTY) {
+            V oldValue = (V) emptyKeyValue;
+            if(oldValue == null) {
+                size++;
+            }
+            emptyKeyValue = value;
+            return oldValue;
+        }
+
+        int index = LongHashing.hash(key) & mask;
+        while(keys[index] != EMPTY) {
+            if(keys[index] == key) {
+                V oldValue = (V) values[index];
+                values[index] = value;
+                return oldValue;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+
+        if(size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the value stored for the key.
+     * @param key Key to remove.
+     * @return The removed value, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if(key == EMPTY) {
+            V oldValue = (V) emptyKeyValue;
+            if(oldValue != null) {
+                size--;
+            }
+            emptyKeyValue = null;
+            return oldValue;
+        }
+
+        int index = LongHashing.hash(key) & mask;
+        while(keys[index] != EMPTY) {
+            if(keys[index] == key) {
+                V oldValue = (V) values[index];
+                keys[index] = EMPTY;
+                values[index] = null;
+                size--;
+                shiftKeysBack(index);
+                return oldValue;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Moves the entries after a removed slot back so that lookups do not
+     * stop early at the new gap.
+     * @param gap Index of the slot that was emptied.
+     */
+    private void shiftKeysBack(int gap) {
+        int index = (gap + 1) & mask;
+        while(keys[index] != EMPTY) {
+            int wanted = LongHashing.hash(keys[index]) & mask;
+            // Move the entry if its wanted slot is not between the gap and where it is now.
+            if(((index - wanted) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                keys[index] = EMPTY;
+                values[index] = null;
+                gap = index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY) {
+                int index = LongHashing.hash(oldKeys[i]) & mask;
+                while(keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        emptyKeyValue = null;
+        size = 0;
+    }
+}
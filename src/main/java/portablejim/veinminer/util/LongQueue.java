@@ -0,0 +1,99 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * First in, first out queue of longs backed by a ring buffer that grows when
+ * full.
+ *
+ * Not thread safe.
+ */
+
+public class LongQueue implements LongFrontier {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private long[] elements;
+    private int head;
+    private int tail;
+    private int size;
+
+    public LongQueue() {
+        elements = new long[DEFAULT_CAPACITY];
+        head = 0;
+        tail = 0;
+        size = 0;
+    }
+
+    public void add(long value) {
+        if(size == elements.length) {
+            grow();
+        }
+        elements[tail] = value;
+        tail = (tail + 1) & (elements.length - 1);
+        size++;
+    }
+
+    /**
+     * Takes the oldest value from the queue.
+     * @return The oldest value.
+     * @throws NoSuchElementException If the queue is empty.
+     */
+    public long remove() {
+        if(size == 0) {
+            throw new NoSuchElementException();
+        }
+        long value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    public long peek() {
+        if(size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elements[head];
+    }
+
+    private void grow() {
+        long[] newElements = new long[elements.length << 1];
+        int firstPart = elements.length - head;
+        System.arraycopy(elements, head, newElements, 0, firstPart);
+        System.arraycopy(elements, 0, newElements, firstPart, head);
+        elements = newElements;
+        head = 0;
+        tail = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        head = 0;
+        tail = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,80 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Last in, first out stack of longs backed by an array that grows when
+ * full.
+ *
+ * Not thread safe.
+ */
+
+public class LongStack implements LongFrontier {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private long[] elements;
+    private int size;
+
+    public LongStack() {
+        elements = new long[DEFAULT_CAPACITY];
+        size = 0;
+    }
+
+    public void add(long value) {
+        if(size == elements.length) {
+            long[] newElements = new long[elements.length << 1];
+            System.arraycopy(elements, 0, newElements, 0, size);
+            elements = newElements;
+        }
+        elements[size++] = value;
+    }
+
+    /**
+     * Takes the newest value from the stack.
+     * @return The newest value.
+     * @throws NoSuchElementException If the stack is empty.
+     */
+    public long remove() {
+        if(size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elements[--size];
+    }
+
+    public long peek() {
+        if(size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elements[size - 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,65 @@
+/* This file is part of VeinMiner Mod Support.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package portablejim.veinminermodsupport;
+
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import net.minecraft.item.ItemStack;
+import portablejim.veinminer.api.VeinminerPostUseTool;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Repairs Dartcraft force tools straight after each block while
+ * Veinmine-ing, so the tool can't wear out part way through a tick. Only
+ * registered when Dartcraft's IForceConsumer is found.
+ */
+
+public class ForceRepairHandler {
+    private final Class<?> forceConsumer;
+    private final Method attemptRepair;
+    private boolean repairWorks;
+
+    ForceRepairHandler(Class<?> forceConsumer, Method attemptRepair) {
+        this.forceConsumer = forceConsumer;
+        this.attemptRepair = attemptRepair;
+        repairWorks = true;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    @SubscribeEvent
+    public void applyForce(VeinminerPostUseTool event) {
+        ItemStack currentEquippedItemStack = event.player.getCurrentEquippedItem();
+        if(!repairWorks || currentEquippedItemStack == null || !forceConsumer.isInstance(currentEquippedItemStack.getItem())) {
+            return;
+        }
+
+        // Method called lots (many times a second, possibly thousand times
+        // total), so the class and method are only looked up once.
+        try {
+            attemptRepair.invoke(currentEquippedItemStack.getItem(), currentEquippedItemStack);
+            VeinMinerModSupport.instance.devLog("Repairing dartcraft force consumer");
+        } catch (InvocationTargetException e) {
+            VeinMinerModSupport.instance.devLog("Trying to repair Dartcraft tools didn't work. It threw a InvocationTargetException.");
+            repairWorks = false;
+        } catch (IllegalAccessException e) {
+            VeinMinerModSupport.instance.devLog("Trying to repair Dartcraft tools didn't work. It threw a IllegalAccessException.");
+            repairWorks = false;
+        }
+    }
+}
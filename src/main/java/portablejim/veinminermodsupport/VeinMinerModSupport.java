@@ -40,11 +40,9 @@ import portablejim.veinminer.VeinMiner;
 import portablejim.veinminer.api.IMCMessage;
 import portablejim.veinminer.api.Permission;
 import portablejim.veinminer.api.VeinminerHarvestFailedCheck;
-import portablejim.veinminer.api.VeinminerPostUseTool;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -278,10 +276,12 @@ public class VeinMinerModSupport {
         if(Loader.isModLoaded("DartCraft")) {
             devLog("Testing for dartcraft classes and functions.");
             try {
-                Object obj = Class.forName("bluedart.api.IForceConsumer").getMethod("attemptRepair", ItemStack.class);
+                Class<?> forceConsumer = Class.forName("bluedart.api.IForceConsumer");
+                Method attemptRepair = forceConsumer.getMethod("attemptRepair", ItemStack.class);
 
-                // Class present.
+                // Class present. Only listen for blocks being mined when it is needed.
                 forceConsumerAvailable = true;
+                MinecraftForge.EVENT_BUS.register(new ForceRepairHandler(forceConsumer, attemptRepair));
             } catch (ClassNotFoundException e) {
                 devLog("Failed to find Dartcraft force consumer. Disabling repair support");
             } catch (NoSuchMethodException e) {
@@ -290,7 +290,7 @@ public class VeinMinerModSupport {
         }
     }
 
-    private void devLog(String string) {
+    void devLog(String string) {
         if(debugMode) {
             FMLLog.getLogger().info("[" + ModInfo.MOD_ID + "] " + string);
         }
@@ -437,38 +437,4 @@ public class VeinMinerModSupport {
             if("IC2:blockRubWood".equals(event.blockName)) event.allowContinue = Permission.ALLOW;
         }
     }
-
-    @SuppressWarnings("UnusedDeclaration")
-    @SubscribeEvent
-    public void applyForce(VeinminerPostUseTool event) {
-        ItemStack currentEquippedItemStack = event.player.getCurrentEquippedItem();
-
-        // Pre-compute if avaliable to short circuit logic if not found.
-        // Method called lots (many times a second, possibly thousand times total).
-        // Reflection is slow, and you'll probably feel it.
-        if(forceConsumerAvailable && currentEquippedItemStack != null && Loader.isModLoaded("DartCraft")) {
-            devLog("Reflecting on Dartcraft run repair method.");
-            try {
-                Class IForceConsumer = Class.forName("bluedart.api.IForceConsumer");
-                if(IForceConsumer != null && IForceConsumer.isInstance(currentEquippedItemStack.getItem())) {
-                    //noinspection unchecked
-                    Method attemptRepair = IForceConsumer.getMethod("attemptRepair", ItemStack.class);
-                    attemptRepair.invoke(currentEquippedItemStack.getItem(), currentEquippedItemStack);
-                    devLog("Repairing dartcraft force consumer");
-                }
-            } catch (ClassNotFoundException e) {
-                devLog("Strange, I thought we already found the Dartcraft class.");
-                forceConsumerAvailable = false;
-            } catch (NoSuchMethodException e) {
-                devLog("Strange, I thought we already found the Dartcraft class and correct method.");
-                forceConsumerAvailable = false;
-            } catch (InvocationTargetException e) {
-                devLog("Trying to repair Dartcraft tools didn't work. It threw a InvocationTargetException.");
-                forceConsumerAvailable = false;
-            } catch (IllegalAccessException e) {
-                devLog("Trying to repair Dartcraft tools didn't work. It threw a IllegalAccessException.");
-                forceConsumerAvailable = false;
-            }
-        }
-    }
 }
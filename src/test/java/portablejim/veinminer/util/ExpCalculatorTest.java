@@ -0,0 +1,143 @@
+/* This file is part of VeinMiner.
+ *
+ *    VeinMiner is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as
+ *    published by the Free Software Foundation, either version 3 of
+ *     the License, or (at your option) any later version.
+ *
+ *    VeinMiner is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with VeinMiner.
+ *    If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package portablejim.veinminer.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks ExpCalculator against the exp totals of vanilla 1.7.10, then
+ * against the exp needed for each level worked out by adding up
+ * xpBarCap() the same way vanilla levels up, for every level whose total
+ * exp fits in an int.
+ */
+
+public class ExpCalculatorTest {
+    private static final int TABLE_LEVELS = 1024;
+
+    /**
+     * Highest level whose total exp fits in an int.
+     */
+    private static int maxLevel() {
+        long total = 0;
+        int level = 0;
+        while(total + ExpCalculator.xpBarCap(level) <= Integer.MAX_VALUE) {
+            total += ExpCalculator.xpBarCap(level);
+            level++;
+        }
+        return level;
+    }
+
+    @Test
+    public void barCapMatchesVanilla() {
+        // EntityPlayer.xpBarCap() in 1.7.10.
+        assertEquals(17, ExpCalculator.xpBarCap(0));
+        assertEquals(17, ExpCalculator.xpBarCap(14));
+        assertEquals(17, ExpCalculator.xpBarCap(15));
+        assertEquals(20, ExpCalculator.xpBarCap(16));
+        assertEquals(59, ExpCalculator.xpBarCap(29));
+        assertEquals(62, ExpCalculator.xpBarCap(30));
+        assertEquals(69, ExpCalculator.xpBarCap(31));
+    }
+
+    @Test
+    public void levelExpMatchesVanillaTotals() {
+        // Total exp to reach each level in 1.7.10: 17 * level up to 16,
+        // 1.5 * level^2 - 29.5 * level + 360 up to 31, then
+        // 3.5 * level^2 - 151.5 * level + 2220.
+        int[][] totals = new int[][] {
+                { 0, 0 }, { 1, 17 }, { 15, 255 }, { 16, 272 }, { 17, 292 },
+                { 30, 825 }, { 31, 887 }, { 32, 956 }, { 40, 1760 }, { 100, 22070 }
+        };
+        for(int[] total : totals) {
+            assertEquals("Level " + total[0], total[1], ExpCalculator.getLevelExp(total[0]));
+            assertEquals("Start of level " + total[0], total[0], ExpCalculator.getLevel(total[1]));
+            if(total[0] > 0) {
+                assertEquals("End of level " + (total[0] - 1), total[0] - 1, ExpCalculator.getLevel(total[1] - 1));
+            }
+        }
+    }
+
+    @Test
+    public void levelExpMatchesSumOfBarCaps() {
+        int maxLevel = maxLevel();
+        long total = 0;
+        for(int level = 0; level <= maxLevel; level++) {
+            assertEquals("Level " + level, total, ExpCalculator.getLevelExp(level));
+            total += ExpCalculator.xpBarCap(level);
+        }
+    }
+
+    @Test
+    public void levelIsInverseOfLevelExp() {
+        int maxLevel = maxLevel();
+        for(int level = 1; level <= maxLevel; level++) {
+            int levelExp = ExpCalculator.getLevelExp(level);
+            assertEquals("Start of level " + level, level, ExpCalculator.getLevel(levelExp));
+            assertEquals("End of level " + (level - 1), level - 1, ExpCalculator.getLevel(levelExp - 1));
+        }
+    }
+
+    @Test
+    public void levelRoundTripsAroundBreakpoints() {
+        int[] breakpoints = new int[] { 15, 30, TABLE_LEVELS };
+        for(int breakpoint : breakpoints) {
+            for(int level = breakpoint - 3; level <= breakpoint + 3; level++) {
+                int levelExp = ExpCalculator.getLevelExp(level);
+                for(int k = 0; k < ExpCalculator.xpBarCap(level); k++) {
+                    assertEquals("Level " + level + " + " + k, level, ExpCalculator.getLevel(levelExp + k));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void expBarMatchesExpIntoLevel() {
+        for(int level = 0; level <= TABLE_LEVELS + 2; level++) {
+            int levelExp = ExpCalculator.getLevelExp(level);
+            int barCap = ExpCalculator.xpBarCap(level);
+            assertEquals(0.0F, ExpCalculator.getExpBar(levelExp), 0.0F);
+            assertEquals((float) (barCap - 1) / barCap, ExpCalculator.getExpBar(levelExp + barCap - 1), 0.0F);
+            assertEquals(levelExp + barCap / 2, ExpCalculator.getExp(level, (float) (barCap / 2) / barCap));
+        }
+    }
+
+    @Test
+    public void clampsNearIntegerMaxValue() {
+        int maxLevel = maxLevel();
+        assertTrue(ExpCalculator.getLevelExp(maxLevel) > 0);
+        assertEquals(Integer.MAX_VALUE, ExpCalculator.getLevelExp(maxLevel + 1));
+        assertEquals(Integer.MAX_VALUE, ExpCalculator.getLevelExp(Integer.MAX_VALUE));
+        assertEquals(maxLevel, ExpCalculator.getLevel(Integer.MAX_VALUE));
+        assertEquals(maxLevel, ExpCalculator.getLevel(ExpCalculator.getLevelExp(maxLevel)));
+        assertEquals(Integer.MAX_VALUE, ExpCalculator.getExp(maxLevel, 0.999F));
+        assertEquals(Integer.MAX_VALUE, ExpCalculator.getExp(Integer.MAX_VALUE, 0.5F));
+    }
+
+    @Test
+    public void nothingBelowZero() {
+        assertEquals(0, ExpCalculator.getLevelExp(0));
+        assertEquals(0, ExpCalculator.getLevelExp(-5));
+        assertEquals(0, ExpCalculator.getLevel(0));
+        assertEquals(0, ExpCalculator.getLevel(-5));
+        assertEquals(0.0F, ExpCalculator.getExpBar(-5), 0.0F);
+    }
+}